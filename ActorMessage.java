@@ -0,0 +1,108 @@
+import java.util.Map;
+
+/**
+ * Class ActorMessage represents a message sent to the mailbox of a NodeActor
+ * in the live emulation mode. A query message carries the lookup it belongs
+ * to and is passed on from hop to hop; notify messages carry the node
+ * notifying its successor; data transfer messages carry the data handed off
+ * to the receiving node; stabilize messages carry nothing.
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+public class ActorMessage {
+	/**
+	 * The type of the message, one of QUERY_FORWARD, NOTIFY, DATA_TRANSFER and
+	 * STABILIZE.
+	 */
+	final MessageType type;
+
+	/**
+	 * The lookup carried by a query message.
+	 */
+	final Lookup lookup;
+
+	/**
+	 * The wall-clock time in nanoseconds the lookup was initiated at.
+	 */
+	final long startNanos;
+
+	/**
+	 * The node sending a notify message.
+	 */
+	final Node sender;
+
+	/**
+	 * The data carried by a data transfer message.
+	 */
+	final Map<Integer, Data> data;
+
+	/**
+	 * Construct a new ActorMessage object.
+	 * 
+	 * @param type
+	 *            the type of the message
+	 * @param lookup
+	 *            the lookup of a query message, or null
+	 * @param startNanos
+	 *            the start time of the lookup in nanoseconds
+	 * @param sender
+	 *            the sender of a notify message, or null
+	 * @param data
+	 *            the data of a data transfer message, or null
+	 */
+	private ActorMessage(MessageType type, Lookup lookup, long startNanos,
+			Node sender, Map<Integer, Data> data) {
+		this.type = type;
+		this.lookup = lookup;
+		this.startNanos = startNanos;
+		this.sender = sender;
+		this.data = data;
+	}
+
+	/**
+	 * Returns a new query message.
+	 * 
+	 * @param lookup
+	 *            the Lookup object
+	 * @param startNanos
+	 *            the start time of the lookup in nanoseconds
+	 * @return the ActorMessage object
+	 */
+	public static ActorMessage query(Lookup lookup, long startNanos) {
+		return new ActorMessage(MessageType.QUERY_FORWARD, lookup, startNanos,
+				null, null);
+	}
+
+	/**
+	 * Returns a new notify message.
+	 * 
+	 * @param sender
+	 *            the node notifying its successor
+	 * @return the ActorMessage object
+	 */
+	public static ActorMessage notify(Node sender) {
+		return new ActorMessage(MessageType.NOTIFY, null, 0, sender, null);
+	}
+
+	/**
+	 * Returns a new data transfer message.
+	 * 
+	 * @param data
+	 *            the data handed off to the receiving node
+	 * @return the ActorMessage object
+	 */
+	public static ActorMessage dataTransfer(Map<Integer, Data> data) {
+		return new ActorMessage(MessageType.DATA_TRANSFER, null, 0, null,
+				data);
+	}
+
+	/**
+	 * Returns a new stabilize message.
+	 * 
+	 * @return the ActorMessage object
+	 */
+	public static ActorMessage stabilize() {
+		return new ActorMessage(MessageType.STABILIZE, null, 0, null, null);
+	}
+}
@@ -0,0 +1,126 @@
+/**
+ * Class AggregateResultSink keeps running aggregates of every column of the
+ * results written to it: the number of values, their mean, minimum and
+ * maximum. The rows themselves are not kept.
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+public class AggregateResultSink implements ResultSink {
+	/**
+	 * The names of the columns.
+	 */
+	private String[] columns;
+
+	/**
+	 * The number of rows written.
+	 */
+	private long count;
+
+	/**
+	 * The running mean per column.
+	 */
+	private double[] mean;
+
+	/**
+	 * The minimum per column.
+	 */
+	private double[] min;
+
+	/**
+	 * The maximum per column.
+	 */
+	private double[] max;
+
+	/**
+	 * Construct a new AggregateResultSink object.
+	 * 
+	 * @param columns
+	 *            the names of the columns
+	 */
+	public AggregateResultSink(String... columns) {
+		this.columns = columns;
+		this.mean = new double[columns.length];
+		this.min = new double[columns.length];
+		this.max = new double[columns.length];
+		for (int i = 0; i < columns.length; i++) {
+			min[i] = Double.POSITIVE_INFINITY;
+			max[i] = Double.NEGATIVE_INFINITY;
+		}
+	}
+
+	public void write(double... values) {
+		if (values.length != columns.length)
+			throw new IllegalArgumentException("Expected " + columns.length
+					+ " values, got " + values.length);
+		count++;
+		for (int i = 0; i < values.length; i++) {
+			mean[i] += (values[i] - mean[i]) / count;
+			min[i] = Math.min(min[i], values[i]);
+			max[i] = Math.max(max[i], values[i]);
+		}
+	}
+
+	public void flush() {
+	}
+
+	public void close() {
+	}
+
+	/**
+	 * Returns the number of rows written.
+	 * 
+	 * @return the number of rows
+	 */
+	public long count() {
+		return count;
+	}
+
+	/**
+	 * Returns the mean of the given column.
+	 * 
+	 * @param column
+	 *            the name of the column
+	 * @return the mean of the column
+	 */
+	public double mean(String column) {
+		return mean[index(column)];
+	}
+
+	/**
+	 * Returns the minimum of the given column.
+	 * 
+	 * @param column
+	 *            the name of the column
+	 * @return the minimum of the column
+	 */
+	public double min(String column) {
+		return min[index(column)];
+	}
+
+	/**
+	 * Returns the maximum of the given column.
+	 * 
+	 * @param column
+	 *            the name of the column
+	 * @return the maximum of the column
+	 */
+	public double max(String column) {
+		return max[index(column)];
+	}
+
+	/**
+	 * Returns the index of the given column.
+	 * 
+	 * @param column
+	 *            the name of the column
+	 * @return the index of the column
+	 */
+	private int index(String column) {
+		for (int i = 0; i < columns.length; i++) {
+			if (columns[i].equals(column))
+				return i;
+		}
+		throw new IllegalArgumentException("Unknown column " + column);
+	}
+}
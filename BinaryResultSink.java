@@ -0,0 +1,155 @@
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class BinaryResultSink writes the results in a compact columnar binary
+ * format. The rows are collected in blocks of at most a fixed number of rows
+ * and each block is written column by column, so the memory used does not
+ * depend on the number of rows written.
+ * <P>
+ * The format is the magic number 0x43525331 ("CRS1"), the number of columns
+ * and the column names (modified UTF-8), followed by the blocks. Each block
+ * is the number of rows n in the block followed by n doubles per column. A
+ * block with zero rows ends the stream.
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+public class BinaryResultSink implements ResultSink {
+	/**
+	 * The magic number at the start of the stream.
+	 */
+	public static final int MAGIC = 0x43525331;
+
+	/**
+	 * The output stream the blocks are written to.
+	 */
+	private DataOutputStream out;
+
+	/**
+	 * The values of the current block, per column.
+	 */
+	private double[][] block;
+
+	/**
+	 * The number of rows in the current block.
+	 */
+	private int rows;
+
+	/**
+	 * Construct a new BinaryResultSink object and write the header.
+	 * 
+	 * @param out
+	 *            the output stream for the blocks
+	 * @param blockRows
+	 *            the maximum number of rows in a block
+	 * @param columns
+	 *            the names of the columns
+	 */
+	public BinaryResultSink(OutputStream out, int blockRows, String... columns) {
+		this.out = new DataOutputStream(new BufferedOutputStream(out));
+		this.block = new double[columns.length][blockRows];
+		this.rows = 0;
+		try {
+			this.out.writeInt(MAGIC);
+			this.out.writeInt(columns.length);
+			for (String column : columns)
+				this.out.writeUTF(column);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public void write(double... values) {
+		if (values.length != block.length)
+			throw new IllegalArgumentException("Expected " + block.length
+					+ " values, got " + values.length);
+		for (int i = 0; i < values.length; i++)
+			block[i][rows] = values[i];
+		rows++;
+		if (rows == block[0].length)
+			writeBlock();
+	}
+
+	public void flush() {
+		writeBlock();
+		try {
+			out.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public void close() {
+		flush();
+		try {
+			out.writeInt(0);
+			out.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Writes the current block, if it has any rows, and empties it.
+	 */
+	private void writeBlock() {
+		if (rows == 0)
+			return;
+		try {
+			out.writeInt(rows);
+			for (double[] column : block) {
+				for (int i = 0; i < rows; i++)
+					out.writeDouble(column[i]);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		rows = 0;
+	}
+
+	/**
+	 * Reads a stream written by a BinaryResultSink.
+	 * 
+	 * @param in
+	 *            the input stream
+	 * @param columns
+	 *            the list the names of the columns are added to
+	 * @return the rows of the stream
+	 * @throws IOException
+	 *             if the stream cannot be read or is not in the format
+	 */
+	public static List<double[]> read(InputStream in, List<String> columns)
+			throws IOException {
+		DataInputStream data = new DataInputStream(in);
+		if (data.readInt() != MAGIC)
+			throw new IOException("Not a binary result stream");
+		int n = data.readInt();
+		for (int i = 0; i < n; i++)
+			columns.add(data.readUTF());
+		List<double[]> result = new ArrayList<double[]>();
+		try {
+			int rows;
+			while ((rows = data.readInt()) > 0) {
+				double[][] block = new double[rows][n];
+				for (int c = 0; c < n; c++) {
+					for (int r = 0; r < rows; r++)
+						block[r][c] = data.readDouble();
+				}
+				for (double[] row : block)
+					result.add(row);
+			}
+		} catch (EOFException e) {
+			// The writer did not close the stream; keep the complete blocks.
+		}
+		return result;
+	}
+}
@@ -0,0 +1,121 @@
+import java.util.Arrays;
+
+/**
+ * Class BloomFilter is a compact summary of the hash keys of the data stored
+ * on a node of the Chord ring. It answers whether a key might be stored: a
+ * negative answer is always right, a positive one is wrong with a small
+ * probability that grows with the number of keys added. Keys cannot be
+ * removed from the filter; it is cleared and rebuilt instead.
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+public class BloomFilter {
+	/**
+	 * The bits of the filter.
+	 */
+	private long[] bits;
+
+	/**
+	 * The number of bits of the filter.
+	 */
+	private int size;
+
+	/**
+	 * The number of bits set per key.
+	 */
+	private int hashes;
+
+	/**
+	 * Construct a new empty BloomFilter object.
+	 * 
+	 * @param size
+	 *            the number of bits of the filter
+	 * @param hashes
+	 *            the number of bits set per key
+	 */
+	public BloomFilter(int size, int hashes) {
+		this.size = size;
+		this.hashes = hashes;
+		this.bits = new long[(size + 63) >>> 6];
+	}
+
+	/**
+	 * Construct a new BloomFilter object holding a copy of the given filter,
+	 * as sent to another node.
+	 * 
+	 * @param filter
+	 *            the BloomFilter object to copy
+	 */
+	public BloomFilter(BloomFilter filter) {
+		this.size = filter.size;
+		this.hashes = filter.hashes;
+		this.bits = filter.bits.clone();
+	}
+
+	/**
+	 * Adds a hash key to the filter.
+	 * 
+	 * @param key
+	 *            the hash key
+	 */
+	public void add(int key) {
+		int h1 = mix(key);
+		int h2 = mix(h1) | 1;
+		for (int i = 0; i < hashes; i++) {
+			int bit = ((h1 + i * h2) & 0x7fffffff) % size;
+			bits[bit >>> 6] |= 1L << bit;
+		}
+	}
+
+	/**
+	 * Checks whether a hash key might have been added to the filter.
+	 * 
+	 * @param key
+	 *            the hash key
+	 * @return false if the key was certainly not added, true otherwise
+	 */
+	public boolean mightContain(int key) {
+		int h1 = mix(key);
+		int h2 = mix(h1) | 1;
+		for (int i = 0; i < hashes; i++) {
+			int bit = ((h1 + i * h2) & 0x7fffffff) % size;
+			if ((bits[bit >>> 6] & (1L << bit)) == 0)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Removes all the keys from the filter.
+	 */
+	public void clear() {
+		Arrays.fill(bits, 0);
+	}
+
+	/**
+	 * Returns the memory taken by the bits of the filter.
+	 * 
+	 * @return the number of bytes
+	 */
+	public int sizeBytes() {
+		return bits.length * 8;
+	}
+
+	/**
+	 * Scrambles the bits of a hash key, so that nearby keys set unrelated
+	 * bits of the filter.
+	 * 
+	 * @param x
+	 *            the hash key
+	 * @return the scrambled key
+	 */
+	private static int mix(int x) {
+		x ^= x >>> 16;
+		x *= 0x85ebca6b;
+		x ^= x >>> 13;
+		x *= 0xc2b2ae35;
+		x ^= x >>> 16;
+		return x;
+	}
+}
@@ -0,0 +1,63 @@
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Class BufferPool keeps a pool of direct byte buffers of a fixed capacity,
+ * so the network mode can encode and receive messages without allocating a
+ * buffer per message. Direct buffers are handed to the socket calls without
+ * being copied into the Java heap.
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+public class BufferPool {
+	/**
+	 * The buffers available for use.
+	 */
+	private Queue<ByteBuffer> free = new ConcurrentLinkedQueue<ByteBuffer>();
+
+	/**
+	 * The capacity of every buffer in bytes.
+	 */
+	private int capacity;
+
+	/**
+	 * Construct a new BufferPool object with the given number of buffers
+	 * allocated up front.
+	 * 
+	 * @param capacity
+	 *            the capacity of every buffer in bytes
+	 * @param buffers
+	 *            the number of buffers allocated up front
+	 */
+	public BufferPool(int capacity, int buffers) {
+		this.capacity = capacity;
+		for (int i = 0; i < buffers; i++)
+			free.add(ByteBuffer.allocateDirect(capacity));
+	}
+
+	/**
+	 * Takes a cleared buffer from the pool, allocating a new one if the pool
+	 * is empty.
+	 * 
+	 * @return the ByteBuffer object
+	 */
+	public ByteBuffer acquire() {
+		ByteBuffer buffer = free.poll();
+		if (buffer == null)
+			return ByteBuffer.allocateDirect(capacity);
+		buffer.clear();
+		return buffer;
+	}
+
+	/**
+	 * Returns a buffer to the pool.
+	 * 
+	 * @param buffer
+	 *            the ByteBuffer object
+	 */
+	public void release(ByteBuffer buffer) {
+		free.offer(buffer);
+	}
+}
@@ -0,0 +1,106 @@
+/**
+ * Class CanonRouting is the hierarchical routing of Canon, in its Chord
+ * flavour (Crescendo), over the domains of a DomainTree. Every leaf domain,
+ * e.g. a rack, is a Chord ring of its own, and the rings of sibling domains
+ * are merged into the ring of their parent domain. Each node adds only the
+ * fingers into the merged ring that are closer than its successor in its own
+ * domain's ring, which keeps the state per node at about log N entries.
+ * <P>
+ * Lookups are routed greedily clockwise. The cross-domain fingers of a node
+ * all lie before its successor in its own domain. A lookup for a hash key
+ * owned by a node of a domain therefore stays in that domain, once it has
+ * reached the domain, until it reaches the owner. A node forwards the lookup
+ * straight to its successor at the lowest level whose ring-wide predecessor
+ * precedes the key, i.e. to the owner, without stepping onto the foreign
+ * nodes in between.
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+public class CanonRouting implements RoutingStrategy {
+	/**
+	 * The domains the nodes sit in.
+	 */
+	private DomainTree domains;
+
+	/**
+	 * Construct a new CanonRouting object.
+	 * 
+	 * @param domains
+	 *            the DomainTree object
+	 */
+	public CanonRouting(DomainTree domains) {
+		this.domains = domains;
+	}
+
+	public RoutingTable createTable(ChordRing ring, Node node) {
+		return new CanonTable(ring, node, domains);
+	}
+
+	public void maintain(Node node) {
+		node.getFingerTable().update(node.getId());
+	}
+
+	/**
+	 * Returns the successor of the node at the lowest level that owns the key,
+	 * if any, otherwise the entry of the table closest to the key without
+	 * passing it. Entries marked suspect after a timeout are passed over.
+	 */
+	public Node nextHop(Node node, Lookup lookup) {
+		CanonTable table = (CanonTable) node.getFingerTable();
+		int id = node.getId();
+		int dataKey = lookup.getDataKey();
+		for (int l = domains.levels(); l >= 0; l--) {
+			Node succ = table.getSuccessor(l);
+			Node pred = table.getSuccessorPredecessor(l);
+			if (succ != node && !table.isSuspect(l * table.getFingers())
+					&& Node.between(dataKey, id, succ.getId())
+					&& Node.between(dataKey, pred.getId(), succ.getId()))
+				return succ;
+		}
+		Node next = null;
+		int best = -1;
+		for (int i = 0; i < table.size(); i++) {
+			Node entry = table.getIthEntry(i);
+			if (entry == node || table.isSuspect(i)
+					|| !Node.between(entry.getId(), id, dataKey))
+				continue;
+			int distance = distance(node.getRing(), id, entry.getId());
+			if (distance > best) {
+				best = distance;
+				next = entry;
+			}
+		}
+		return next != null ? next : table.getIthEntry(0);
+	}
+
+	/**
+	 * Returns the next hop now that the dead node is suspect, unless it is
+	 * suspect as well.
+	 */
+	public Node alternateHop(Node node, Lookup lookup, Node dead) {
+		Node next = nextHop(node, lookup);
+		RoutingTable table = node.getFingerTable();
+		for (int i = 0; i < table.size(); i++) {
+			if (table.getIthEntry(i) == next && table.isSuspect(i))
+				return null;
+		}
+		return next;
+	}
+
+	/**
+	 * Returns the clockwise distance from one hash key to another.
+	 * 
+	 * @param ring
+	 *            the ChordRing object
+	 * @param from
+	 *            the first hash key
+	 * @param to
+	 *            the second hash key
+	 * @return the distance
+	 */
+	private static int distance(ChordRing ring, int from, int to) {
+		return ((to - from) % ring.ringMaxSize() + ring.ringMaxSize())
+				% ring.ringMaxSize();
+	}
+}
@@ -0,0 +1,231 @@
+import java.util.HashSet;
+import java.util.NavigableMap;
+import java.util.Set;
+
+/**
+ * Class CanonTable is the routing table of a node under Canon routing. It
+ * has a row of finger entries per level of the domain tree, from the root
+ * down to the leaf domain of the node. The leaf row holds the Chord fingers
+ * of the node within its leaf domain's ring. The row of a higher level holds
+ * the successor of hash key base^i past the node in that level's ring. It
+ * keeps such a finger only if it is closer than the node's successor in the
+ * ring one level down, and otherwise repeats the finger of the row below. The
+ * first entry is the successor of the node in the whole ring.
+ * <P>
+ * For the successor of the node at every level, the table also keeps the
+ * active predecessor of that successor in the whole ring, as learned from it
+ * when stabilizing. It tells whether the successor owns a hash key.
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+public class CanonTable implements RoutingTable {
+	private Node[] table;
+	private boolean[] suspect;
+	private Node[] predecessors;
+	private ChordRing ring;
+	private Node node;
+	private DomainTree domains;
+	private int fingers;
+
+	/**
+	 * Construct a new CanonTable object.
+	 * 
+	 * @param ring
+	 *            the ChordRing object
+	 * @param node
+	 *            the Node object owning the table
+	 * @param domains
+	 *            the DomainTree object
+	 */
+	public CanonTable(ChordRing ring, Node node, DomainTree domains) {
+		this.ring = ring;
+		this.node = node;
+		this.domains = domains;
+		this.fingers = ring.getHashKeyLength();
+		this.table = new Node[(domains.levels() + 1) * fingers];
+		this.suspect = new boolean[table.length];
+		this.predecessors = new Node[domains.levels() + 1];
+	}
+
+	public void update(int nodeKey) {
+		for (int l = domains.levels(); l >= 0; l--) {
+			for (int i = 0; i < fingers; i++) {
+				Node entry = finger(nodeKey, l, i);
+				if (l < domains.levels()
+						&& distance(nodeKey, entry) >= distance(nodeKey,
+								table[(l + 1) * fingers]))
+					entry = table[(l + 1) * fingers + i];
+				table[l * fingers + i] = entry;
+				suspect[l * fingers + i] = false;
+			}
+			predecessors[l] = predecessor(table[l * fingers]);
+		}
+	}
+
+	public boolean updateEntry(int nodeKey, int i) {
+		suspect[i] = false;
+		Node entry = resolve(nodeKey, i);
+		if (i % fingers == 0)
+			predecessors[i / fingers] = predecessor(entry);
+		if (table[i] != entry) {
+			table[i] = entry;
+			return true;
+		}
+		return false;
+	}
+
+	public Node resolve(int nodeKey, int i) {
+		int l = i / fingers;
+		int f = i % fingers;
+		Node entry = finger(nodeKey, l, f);
+		// Fall back to the rows below as long as the finger is not closer
+		// than the successor one level down.
+		while (l < domains.levels()
+				&& distance(nodeKey, entry) >= distance(nodeKey,
+						finger(nodeKey, l + 1, 0))) {
+			l++;
+			entry = finger(nodeKey, l, f);
+		}
+		return entry;
+	}
+
+	/**
+	 * Returns the successor of hash key base^i past the given node in the ring
+	 * of the node's domain at the given level, i.e. the first active node of
+	 * the domain at or after that key.
+	 * 
+	 * @param nodeKey
+	 *            the hash key of the node owning the table
+	 * @param level
+	 *            the level of the domain
+	 * @param i
+	 *            the finger index
+	 * @return the Node object
+	 */
+	private Node finger(int nodeKey, int level, int i) {
+		int start = (int) (((long) nodeKey + (long) Math.pow(ring.ringBase(),
+				i)) % ring.ringMaxSize());
+		int domain = domains.domain(node, level);
+		NavigableMap<Integer, Node> nodes = ring.getNodes();
+		for (Node n : nodes.tailMap(start, true).values()) {
+			if (n.isAlive() && domains.domain(n, level) == domain)
+				return n;
+		}
+		for (Node n : nodes.headMap(start, false).values()) {
+			if (n.isAlive() && domains.domain(n, level) == domain)
+				return n;
+		}
+		return node;
+	}
+
+	/**
+	 * Returns the active node preceding the given node in the whole ring.
+	 * 
+	 * @param succ
+	 *            the Node object
+	 * @return the predecessor Node object
+	 */
+	private Node predecessor(Node succ) {
+		NavigableMap<Integer, Node> nodes = ring.getNodes();
+		for (Node n : nodes.headMap(succ.getId(), false).descendingMap()
+				.values()) {
+			if (n.isAlive())
+				return n;
+		}
+		for (Node n : nodes.tailMap(succ.getId(), false).descendingMap()
+				.values()) {
+			if (n.isAlive())
+				return n;
+		}
+		return succ;
+	}
+
+	/**
+	 * Returns the clockwise distance from the given hash key to the given
+	 * node, the whole ring if the node has the hash key itself.
+	 * 
+	 * @param nodeKey
+	 *            the hash key
+	 * @param n
+	 *            the Node object
+	 * @return the distance
+	 */
+	private int distance(int nodeKey, Node n) {
+		int d = ((n.getId() - nodeKey) % ring.ringMaxSize() + ring
+				.ringMaxSize()) % ring.ringMaxSize();
+		return d == 0 ? ring.ringMaxSize() : d;
+	}
+
+	/**
+	 * Returns the number of finger entries per level of the table.
+	 * 
+	 * @return the number of fingers
+	 */
+	public int getFingers() {
+		return fingers;
+	}
+
+	/**
+	 * Returns the successor of the node in the ring of its domain at the given
+	 * level.
+	 * 
+	 * @param level
+	 *            the level of the domain, 0 being the root
+	 * @return the Node object
+	 */
+	public Node getSuccessor(int level) {
+		return table[level * fingers];
+	}
+
+	/**
+	 * Returns the predecessor, in the whole ring, of the successor of the node
+	 * in the ring of its domain at the given level.
+	 * 
+	 * @param level
+	 *            the level of the domain, 0 being the root
+	 * @return the Node object
+	 */
+	public Node getSuccessorPredecessor(int level) {
+		return predecessors[level];
+	}
+
+	/**
+	 * Returns the number of distinct nodes other than the owner the table
+	 * points to, i.e. the links the node actually keeps.
+	 * 
+	 * @return the number of links
+	 */
+	public int links() {
+		Set<Node> distinct = new HashSet<Node>();
+		for (Node n : table) {
+			if (n != null && n != node)
+				distinct.add(n);
+		}
+		return distinct.size();
+	}
+
+	public int size() {
+		return this.table.length;
+	}
+
+	public Node getIthEntry(int i) {
+		return this.table[i];
+	}
+
+	public void setIthEntry(int i, Node node) {
+		this.table[i] = node;
+		this.suspect[i] = false;
+	}
+
+	public void markSuspect(Node node) {
+		for (int i = 0; i < table.length; i++) {
+			if (table[i] == node)
+				suspect[i] = true;
+		}
+	}
+
+	public boolean isSuspect(int i) {
+		return this.suspect[i];
+	}
+}
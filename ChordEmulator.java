@@ -0,0 +1,279 @@
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.rit.sim.Simulation;
+import edu.rit.util.Random;
+
+/**
+ * Class ChordEmulator runs the routing logic of the Chord ring under real
+ * concurrency instead of simulated time. Every Node is run by a NodeActor;
+ * queries, notifications and stabilization requests are exchanged through
+ * the actors' lock-free mailboxes and routed with the same RoutingStrategy
+ * decisions the simulation uses. No Simulation is involved once the ring is
+ * built. The actors run on virtual threads where the JVM provides them
+ * (Java 21 and later) and on a work-stealing pool otherwise.
+ * <P>
+ * The routing state of a node is written only by its own actor, with one
+ * exception: the stabilization of a node reads the predecessor of its
+ * successor, which is owned by the successor's actor. That read may see a
+ * stale value but never a torn one, as it is a single reference.
+ * <P>
+ * Usage: java ChordEmulator [<I>nodes</I> [<I>lookups</I> [<I>window</I>
+ * [<I>stabilizeMillis</I>]]]]
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+public class ChordEmulator {
+
+	private static int seed = 31413;
+	private static int base = 2;
+	private static int hashKeyLength = 20;
+	private static int nodes = 100000;
+	private static int lookups = 1000000;
+	private static int window = 10000;
+	private static long stabilizeMillis = 100;
+
+	/**
+	 * The actors of the nodes, by hash key.
+	 */
+	private Map<Integer, NodeActor> actors;
+
+	/**
+	 * The number of hops after which a lookup is considered failed.
+	 */
+	private int maxHops;
+
+	/**
+	 * The latencies of the finished lookups in nanoseconds.
+	 */
+	private long[] latencies;
+
+	/**
+	 * The number of finished lookups.
+	 */
+	private AtomicInteger finished = new AtomicInteger();
+
+	/**
+	 * The number of successful lookups.
+	 */
+	private AtomicInteger successes = new AtomicInteger();
+
+	/**
+	 * The total number of hops of the finished lookups.
+	 */
+	private AtomicLong hops = new AtomicLong();
+
+	/**
+	 * The permits for lookups in flight.
+	 */
+	private Semaphore inFlight;
+
+	/**
+	 * Counted down when all the lookups have finished.
+	 */
+	private CountDownLatch done;
+
+	/**
+	 * Construct a new ChordEmulator object creating an actor for every node
+	 * of the given ring.
+	 * 
+	 * @param ring
+	 *            the ChordRing object
+	 * @param executor
+	 *            the executor running the actors
+	 * @param lookups
+	 *            the number of lookups to be run
+	 * @param window
+	 *            the maximum number of lookups in flight
+	 */
+	public ChordEmulator(ChordRing ring, ExecutorService executor,
+			int lookups, int window) {
+		this.actors = new HashMap<Integer, NodeActor>();
+		for (Node node : ring.getNodes().values())
+			actors.put(node.getId(), new NodeActor(node, this, executor));
+		this.maxHops = 4 * ring.getHashKeyLength();
+		this.latencies = new long[lookups];
+		this.inFlight = new Semaphore(window);
+		this.done = new CountDownLatch(lookups);
+	}
+
+	/**
+	 * Returns the actor running the given node.
+	 * 
+	 * @param node
+	 *            the Node object
+	 * @return the NodeActor object
+	 */
+	public NodeActor actorOf(Node node) {
+		return actors.get(node.getId());
+	}
+
+	/**
+	 * Returns the number of hops after which a lookup is considered failed.
+	 * 
+	 * @return the maximum number of hops
+	 */
+	public int maxHops() {
+		return maxHops;
+	}
+
+	/**
+	 * Records the outcome of a finished lookup.
+	 * 
+	 * @param message
+	 *            the query message of the lookup
+	 * @param success
+	 *            true if the lookup succeeded, false otherwise
+	 */
+	public void finish(ActorMessage message, boolean success) {
+		long latency = System.nanoTime() - message.startNanos;
+		latencies[finished.getAndIncrement()] = latency;
+		if (success)
+			successes.incrementAndGet();
+		hops.addAndGet(message.lookup.getHops());
+		inFlight.release();
+		done.countDown();
+	}
+
+	/**
+	 * Runs the lookups of the given keys from random nodes, keeping at most
+	 * the window of lookups in flight, while every node is asked to stabilize
+	 * at the given interval.
+	 * 
+	 * @param keys
+	 *            the hash keys looked up
+	 * @param stabilizeMillis
+	 *            the stabilization interval in milliseconds
+	 * @return the elapsed wall-clock time in nanoseconds
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for the lookups
+	 */
+	public long run(int[] keys, long stabilizeMillis)
+			throws InterruptedException {
+		final List<NodeActor> all = new ArrayList<NodeActor>(actors.values());
+		Thread stabilizer = new Thread(new Runnable() {
+			public void run() {
+				try {
+					while (!Thread.currentThread().isInterrupted()) {
+						Thread.sleep(stabilizeMillis);
+						for (NodeActor actor : all)
+							actor.tell(ActorMessage.stabilize());
+					}
+				} catch (InterruptedException e) {
+					// Emulation finished.
+				}
+			}
+		});
+		stabilizer.setDaemon(true);
+
+		java.util.Random picker = new java.util.Random(seed);
+		long start = System.nanoTime();
+		stabilizer.start();
+		for (int key : keys) {
+			inFlight.acquire();
+			NodeActor actor = all.get(picker.nextInt(all.size()));
+			actor.tell(ActorMessage.query(new Lookup(key, 0, 0),
+					System.nanoTime()));
+		}
+		done.await();
+		long elapsed = System.nanoTime() - start;
+		stabilizer.interrupt();
+		return elapsed;
+	}
+
+	/**
+	 * Returns the given percentile of the lookup latencies.
+	 * 
+	 * @param sorted
+	 *            the sorted latencies
+	 * @param p
+	 *            the percentile between 0 and 100
+	 * @return the latency in microseconds
+	 */
+	private static double percentile(long[] sorted, double p) {
+		int i = (int) Math.ceil(p / 100 * sorted.length) - 1;
+		return sorted[Math.max(0, Math.min(sorted.length - 1, i))] / 1000.0;
+	}
+
+	/**
+	 * Returns an executor running each task on a new virtual thread, or a
+	 * work-stealing pool if the JVM has no virtual threads.
+	 * 
+	 * @return the ExecutorService object
+	 */
+	private static ExecutorService newExecutor() {
+		try {
+			Method factory = Executors.class
+					.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newWorkStealingPool();
+		}
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		if (args.length > 0)
+			nodes = Integer.parseInt(args[0]);
+		if (args.length > 1)
+			lookups = Integer.parseInt(args[1]);
+		if (args.length > 2)
+			window = Integer.parseInt(args[2]);
+		if (args.length > 3)
+			stabilizeMillis = Long.parseLong(args[3]);
+		while (Math.pow(base, hashKeyLength) < 2.0 * nodes)
+			hashKeyLength++;
+
+		ChordRing ring = new ChordRing(base, hashKeyLength, nodes,
+				new Simulation(), Random.getInstance(seed), 1.0);
+		int[] stored = new int[(int) (nodes * 1.5)];
+		for (int i = 0; i < stored.length; i++) {
+			Data data = new Data(base, hashKeyLength);
+			ring.addDataToNode(data);
+			stored[i] = data.hashCode();
+		}
+		java.util.Random picker = new java.util.Random(seed);
+		int[] keys = new int[lookups];
+		for (int i = 0; i < lookups; i++)
+			keys[i] = stored[picker.nextInt(stored.length)];
+
+		ExecutorService executor = newExecutor();
+		ChordEmulator emulator = new ChordEmulator(ring, executor, lookups,
+				window);
+		long elapsed = emulator.run(keys, stabilizeMillis);
+		executor.shutdown();
+		executor.awaitTermination(10, TimeUnit.SECONDS);
+
+		long[] sorted = emulator.latencies.clone();
+		Arrays.sort(sorted);
+		double seconds = elapsed / 1e9;
+		System.out.println("Executor\t\t: "
+				+ executor.getClass().getSimpleName());
+		System.out.println("Nodes\t\t\t: " + nodes);
+		System.out.println("Lookups\t\t\t: " + lookups);
+		System.out.printf("Elapsed\t\t\t: %.3f s\n", seconds);
+		System.out.printf("Lookups per second\t: %.0f\n", lookups / seconds);
+		System.out.printf("Lookup Success Ratio\t: %.4f\n",
+				emulator.successes.get() / (double) lookups);
+		System.out.printf("Mean hops\t\t: %.2f\n", emulator.hops.get()
+				/ (double) lookups);
+		System.out.printf("Latency p50\t\t: %.1f us\n", percentile(sorted, 50));
+		System.out.printf("Latency p90\t\t: %.1f us\n", percentile(sorted, 90));
+		System.out.printf("Latency p99\t\t: %.1f us\n", percentile(sorted, 99));
+		System.out.printf("Latency p99.9\t\t: %.1f us\n",
+				percentile(sorted, 99.9));
+		System.out.printf("Latency max\t\t: %.1f us\n",
+				sorted[sorted.length - 1] / 1000.0);
+	}
+}
@@ -0,0 +1,455 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import edu.rit.sim.Simulation;
+import edu.rit.util.Random;
+
+/**
+ * Class ChordNetwork runs the Node protocol of the Chord ring as real network
+ * traffic over UDP on 127.0.0.1. The nodes are spread over a few
+ * NetworkShards, each with its own socket and selector thread, so thousands
+ * of nodes are hosted in one JVM. Every hop of a lookup, every join and every
+ * step of the stabilization is a datagram encoded into a pooled direct
+ * buffer.
+ * <P>
+ * The run has three phases: a fraction of the nodes, taken down before the
+ * network starts, join the ring; every active node stabilizes a number of
+ * rounds; and the lookups are run with a window of lookups in flight. The
+ * client reports the latencies, and the shards report the real cost of a
+ * hop, next to the number of hops the same routing takes in the simulation.
+ * <P>
+ * Usage: java ChordNetwork [<I>nodes</I> [<I>shards</I> [<I>lookups</I>
+ * [<I>window</I>]]]]
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+public class ChordNetwork {
+
+	private static int seed = 31413;
+	private static int base = 2;
+	private static int hashKeyLength = 16;
+	private static int nodes = 10000;
+	private static int shardCount = 4;
+	private static int lookups = 100000;
+	private static int window = 256;
+	private static double joinFraction = 0.01;
+	private static int stabilizeRounds = 2;
+	private static double meanQueryProcTime = 1.0;
+	private static long timeoutMillis = 2000;
+
+	/**
+	 * The shards hosting the nodes.
+	 */
+	private NetworkShard[] shards;
+
+	/**
+	 * The Chord ring whose nodes are hosted.
+	 */
+	private ChordRing ring;
+
+	/**
+	 * The hash keys of the active nodes, published to all the shards. A shard
+	 * adds a node once it is active, and reads the membership here rather
+	 * than the state of the nodes of other shards.
+	 */
+	private NavigableSet<Integer> active;
+
+	/**
+	 * The socket of the client.
+	 */
+	private DatagramChannel client;
+
+	private Selector clientSelector;
+	private InetSocketAddress clientAddress;
+	private BufferPool pool;
+
+	// Outcome of the last exchange.
+	private int successes;
+	private long hops;
+	private int lost;
+
+	/**
+	 * Construct a new ChordNetwork object hosting the nodes of the given ring
+	 * on the given number of shards. A frame carries only the hash key looked
+	 * up, so the ring must be routed the Chord way.
+	 * 
+	 * @param ring
+	 *            the ChordRing object
+	 * @param shardCount
+	 *            the number of shards
+	 * @throws IOException
+	 *             if a socket cannot be opened
+	 * @throws IllegalArgumentException
+	 *             if the ring is not routed the Chord way
+	 */
+	public ChordNetwork(ChordRing ring, int shardCount) throws IOException {
+		if (!(ring.getRouting() instanceof ChordRouting))
+			throw new IllegalArgumentException("The network mode supports "
+					+ "ChordRouting only, not "
+					+ ring.getRouting().getClass().getSimpleName());
+		this.pool = new BufferPool(NetworkFrame.SIZE, 4 * shardCount + 4);
+		this.client = DatagramChannel.open();
+		client.setOption(StandardSocketOptions.SO_RCVBUF, 4 << 20);
+		client.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+		client.configureBlocking(false);
+		this.clientSelector = Selector.open();
+		client.register(clientSelector, SelectionKey.OP_READ);
+		this.clientAddress = (InetSocketAddress) client.getLocalAddress();
+		this.ring = ring;
+		Map<Integer, Node> nodes = ring.getNodes();
+		this.active = new ConcurrentSkipListSet<Integer>();
+		for (Node node : nodes.values()) {
+			if (node.isAlive())
+				active.add(node.getId());
+		}
+		this.shards = new NetworkShard[shardCount];
+		for (int i = 0; i < shardCount; i++)
+			shards[i] = new NetworkShard(this, nodes,
+					4 * ring.getHashKeyLength(), pool);
+	}
+
+	/**
+	 * Returns the address of the shard hosting the given node.
+	 * 
+	 * @param nodeKey
+	 *            the hash key of the node
+	 * @return the address of the shard's socket
+	 */
+	public InetSocketAddress addressOf(int nodeKey) {
+		return shards[Math.floorMod(nodeKey, shards.length)].getAddress();
+	}
+
+	/**
+	 * Publishes the given node as active to all the shards. Called by the
+	 * shard hosting the node once it has marked the node active.
+	 * 
+	 * @param nodeKey
+	 *            the hash key of the node
+	 */
+	public void activate(int nodeKey) {
+		active.add(nodeKey);
+	}
+
+	/**
+	 * Checks whether the given node has been published as active.
+	 * 
+	 * @param nodeKey
+	 *            the hash key of the node
+	 * @return true if active, false otherwise
+	 */
+	public boolean isActive(int nodeKey) {
+		return active.contains(nodeKey);
+	}
+
+	/**
+	 * Resolves the finger table entries and the successor of the given node
+	 * from the published membership, i.e. finger i is the first active node
+	 * at or after hash key base^i past the node. Only the node itself is
+	 * written, so the shard hosting it may call this from its own thread.
+	 * 
+	 * @param node
+	 *            the Node object
+	 */
+	public void resolveFingers(Node node) {
+		RoutingTable table = node.getFingerTable();
+		for (int i = 0; i < table.size(); i++) {
+			int start = (int) (((long) node.getId() + (long) Math.pow(
+					ring.ringBase(), i)) % ring.ringMaxSize());
+			Integer key = active.ceiling(start);
+			if (key == null)
+				key = active.first();
+			table.setIthEntry(i, ring.getNodes().get(key));
+		}
+		node.setSuccessor(table.getIthEntry(0));
+	}
+
+	/**
+	 * Returns the address of the client's socket.
+	 * 
+	 * @return the address of the client's socket
+	 */
+	public InetSocketAddress getClientAddress() {
+		return clientAddress;
+	}
+
+	/**
+	 * Starts the selector threads of all the shards.
+	 */
+	public void start() {
+		for (NetworkShard shard : shards)
+			shard.start();
+	}
+
+	/**
+	 * Stops the shards and closes the client socket.
+	 * 
+	 * @throws IOException
+	 *             if a socket cannot be closed
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for a shard
+	 */
+	public void stop() throws IOException, InterruptedException {
+		for (NetworkShard shard : shards)
+			shard.stop();
+		client.close();
+		clientSelector.close();
+	}
+
+	/**
+	 * Sends a request of the given type to each of the given nodes, keeping
+	 * at most the window of requests outstanding, and waits for all the
+	 * replies. Requests unanswered within the timeout are counted as lost.
+	 * 
+	 * @param type
+	 *            the type of the request frames
+	 * @param destinations
+	 *            the hash keys of the nodes the requests are sent to
+	 * @param keys
+	 *            the keys carried by the requests
+	 * @param window
+	 *            the maximum number of requests outstanding
+	 * @param latencies
+	 *            the array the latency in nanoseconds of each request is
+	 *            stored in
+	 * @return the elapsed time in nanoseconds
+	 * @throws IOException
+	 *             if the client socket fails
+	 */
+	public long exchange(byte type, int[] destinations, int[] keys,
+			int window, long[] latencies) throws IOException {
+		int n = destinations.length;
+		boolean[] answered = new boolean[n];
+		NetworkFrame frame = new NetworkFrame();
+		ByteBuffer buffer = pool.acquire();
+		successes = 0;
+		hops = 0;
+		lost = 0;
+		int next = 0;
+		int outstanding = 0;
+		int completed = 0;
+		long start = System.nanoTime();
+		while (completed + lost < n) {
+			while (outstanding < window && next < n) {
+				frame.set(type, destinations[next], keys[next], -1, next,
+						System.nanoTime());
+				buffer.clear();
+				frame.encode(buffer);
+				buffer.flip();
+				client.send(buffer, addressOf(destinations[next]));
+				next++;
+				outstanding++;
+			}
+			if (clientSelector.select(timeoutMillis) == 0) {
+				for (int i = 0; i < next; i++) {
+					if (!answered[i]) {
+						answered[i] = true;
+						lost++;
+					}
+				}
+				outstanding = 0;
+				continue;
+			}
+			clientSelector.selectedKeys().clear();
+			SocketAddress from;
+			while (true) {
+				buffer.clear();
+				from = client.receive(buffer);
+				if (from == null)
+					break;
+				buffer.flip();
+				frame.decode(buffer);
+				if (answered[frame.request])
+					continue;
+				answered[frame.request] = true;
+				latencies[completed++] = System.nanoTime() - frame.startNanos;
+				outstanding--;
+				if (frame.flag != 0)
+					successes++;
+				hops += frame.hops;
+			}
+		}
+		pool.release(buffer);
+		return System.nanoTime() - start;
+	}
+
+	/**
+	 * Returns the number of hops a lookup for the given key takes from the
+	 * given node with the routing decisions of the simulation.
+	 * 
+	 * @param node
+	 *            the node the lookup starts at
+	 * @param dataKey
+	 *            the hash key looked up
+	 * @param maxHops
+	 *            the number of hops after which the lookup fails
+	 * @return the number of hops
+	 */
+	private static int routeHops(Node node, int dataKey, int maxHops) {
+		int h = 0;
+		while (node.isAlive() && !node.hasData(dataKey)
+				&& node.getId() != dataKey && h < maxHops) {
+			node = node.nextHop(dataKey);
+			h++;
+		}
+		return h;
+	}
+
+	/**
+	 * Prints the summary of an exchange.
+	 * 
+	 * @param phase
+	 *            the name of the phase
+	 * @param n
+	 *            the number of requests
+	 * @param elapsed
+	 *            the elapsed time in nanoseconds
+	 * @param latencies
+	 *            the latencies of the answered requests
+	 * @param completed
+	 *            the number of answered requests
+	 */
+	private static void report(String phase, int n, long elapsed,
+			long[] latencies, int completed) {
+		long[] sorted = Arrays.copyOf(latencies, completed);
+		Arrays.sort(sorted);
+		System.out.printf("%-10s %8d requests %10.3f s %10.0f /s", phase, n,
+				elapsed / 1e9, n / (elapsed / 1e9));
+		if (completed > 0)
+			System.out.printf("   p50 %8.1f us   p99 %8.1f us",
+					sorted[completed / 2] / 1000.0,
+					sorted[Math.min(completed - 1, completed * 99 / 100)] / 1000.0);
+		System.out.println();
+	}
+
+	public static void main(String[] args) throws IOException,
+			InterruptedException {
+		if (args.length > 0)
+			nodes = Integer.parseInt(args[0]);
+		if (args.length > 1)
+			shardCount = Integer.parseInt(args[1]);
+		if (args.length > 2)
+			lookups = Integer.parseInt(args[2]);
+		if (args.length > 3)
+			window = Integer.parseInt(args[3]);
+		while (Math.pow(base, hashKeyLength) < 2.0 * nodes)
+			hashKeyLength++;
+
+		Random rand = Random.getInstance(seed);
+		java.util.Random picker = new java.util.Random(seed);
+		ChordRing ring = new ChordRing(base, hashKeyLength, nodes,
+				new Simulation(), rand, meanQueryProcTime);
+		int[] stored = new int[(int) (nodes * 1.5)];
+		for (int i = 0; i < stored.length; i++) {
+			Data data = new Data(base, hashKeyLength);
+			ring.addDataToNode(data);
+			stored[i] = data.hashCode();
+		}
+
+		// Take down the nodes that are to join over the network.
+		List<Integer> nodeKeys = ring.getNodeKeys();
+		List<Integer> joiners = new ArrayList<Integer>();
+		while (joiners.size() < joinFraction * nodes) {
+			int key = nodeKeys.get(picker.nextInt(nodeKeys.size()));
+			if (!joiners.contains(key)) {
+				joiners.add(key);
+				ring.getNodes().get(key).changeState();
+			}
+		}
+
+		ChordNetwork network = new ChordNetwork(ring, shardCount);
+		network.start();
+
+		int[] joinKeys = new int[joiners.size()];
+		for (int i = 0; i < joinKeys.length; i++)
+			joinKeys[i] = joiners.get(i);
+		long[] latencies = new long[joinKeys.length];
+		long elapsed = network.exchange(NetworkFrame.JOIN, joinKeys,
+				new int[joinKeys.length], window, latencies);
+		report("join", joinKeys.length, elapsed, latencies, joinKeys.length
+				- network.lost);
+
+		int[] alive = new int[nodes];
+		int aliveCount = 0;
+		for (int key : nodeKeys) {
+			if (network.isActive(key))
+				alive[aliveCount++] = key;
+		}
+		alive = Arrays.copyOf(alive, aliveCount);
+		latencies = new long[aliveCount];
+		for (int r = 0; r < stabilizeRounds; r++) {
+			elapsed = network.exchange(NetworkFrame.STABILIZE, alive,
+					new int[aliveCount], window, latencies);
+			report("stabilize", aliveCount, elapsed, latencies, aliveCount
+					- network.lost);
+		}
+
+		int[] starts = new int[lookups];
+		int[] keys = new int[lookups];
+		for (int i = 0; i < lookups; i++) {
+			starts[i] = alive[picker.nextInt(aliveCount)];
+			keys[i] = stored[picker.nextInt(stored.length)];
+		}
+		latencies = new long[lookups];
+		elapsed = network.exchange(NetworkFrame.QUERY, starts, keys, window,
+				latencies);
+		int lookupsLost = network.lost;
+		report("lookup", lookups, elapsed, latencies, lookups - lookupsLost);
+		network.stop();
+
+		long simHops = 0;
+		for (int i = 0; i < lookups; i++)
+			simHops += routeHops(ring.getNodes().get(starts[i]), keys[i],
+					4 * hashKeyLength);
+
+		long encode = 0, send = 0, receive = 0, decode = 0;
+		long sent = 0, received = 0, dropped = 0, forwarded = 0;
+		for (NetworkShard shard : network.shards) {
+			encode += shard.encodeNanos;
+			send += shard.sendNanos;
+			receive += shard.receiveNanos;
+			decode += shard.decodeNanos;
+			sent += shard.sent;
+			received += shard.received;
+			dropped += shard.dropped;
+			forwarded += shard.forwarded;
+		}
+		System.out.println();
+		System.out.println("Nodes / shards\t\t: " + nodes + " / " + shardCount);
+		System.out.printf("Lookup Success Ratio\t: %.4f\n",
+				network.successes / (double) lookups);
+		System.out.println("Lookups lost\t\t: " + lookupsLost);
+		System.out.printf("Mean hops (network)\t: %.3f\n", network.hops
+				/ (double) (lookups - lookupsLost));
+		System.out.printf("Mean hops (simulated)\t: %.3f\n", simHops
+				/ (double) lookups);
+		System.out.printf("Simulated hop time\t: %.3f time units\n",
+				meanQueryProcTime);
+		System.out.println("Datagrams sent/recv\t: " + sent + " / " + received
+				+ " (" + dropped + " dropped, " + forwarded + " hops)");
+		System.out.printf("Encode per frame\t: %.0f ns\n", encode
+				/ (double) Math.max(1, sent + dropped));
+		System.out.printf("Send syscall per frame\t: %.0f ns\n", send
+				/ (double) Math.max(1, sent + dropped));
+		System.out.printf("Recv syscall per frame\t: %.0f ns\n", receive
+				/ (double) Math.max(1, received));
+		System.out.printf("Decode per frame\t: %.0f ns\n", decode
+				/ (double) Math.max(1, received));
+		System.out.printf("Cost per hop\t\t: %.0f ns\n",
+				(encode + send + receive + decode)
+						/ (double) Math.max(1, received));
+	}
+}
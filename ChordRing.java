@@ -1,10 +1,13 @@
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Queue;
+import java.util.TreeMap;
 
 import edu.rit.numeric.ExponentialPrng;
 import edu.rit.numeric.ListSeries;
@@ -44,15 +47,40 @@ public class ChordRing {
 	private int maxSize;
 
 	/**
-	 * A map with the pairs of hash key and corresponding node in the ring.
+	 * A map with the pairs of hash key and corresponding node in the ring,
+	 * sorted by hash key.
 	 */
-	private Map<Integer, Node> nodes;
+	private NavigableMap<Integer, Node> nodes;
 
 	/**
-	 * A list of hash key of the nodes in the ring (sorted).
+	 * A list of hash key of the nodes in the ring, in no particular order,
+	 * for picking random nodes.
 	 */
 	private List<Integer> nodeKeys;
 
+	/**
+	 * The position of every hash key in the list of hash keys, so a key can be
+	 * removed from the list in constant time.
+	 */
+	private Map<Integer, Integer> keyPositions;
+
+	/**
+	 * The physical hosts running the nodes in the ring, in no particular
+	 * order.
+	 */
+	private List<Host> hosts;
+
+	/**
+	 * The position of every host in the list of hosts, so a host can be
+	 * removed from the list in constant time.
+	 */
+	private Map<Host, Integer> hostPositions;
+
+	/**
+	 * The index of the next host created.
+	 */
+	private int nextHostId;
+
 	/**
 	 * A Simulation object.
 	 */
@@ -74,6 +102,83 @@ public class ChordRing {
 	 */
 	private ListSeries lookups;
 
+	/**
+	 * A series to accumulate the number of hops of the finished lookups.
+	 */
+	private ListSeries hops;
+
+	/**
+	 * Series to accumulate the timeouts, the retries and the extra latency of
+	 * the finished lookups.
+	 */
+	private ListSeries timeouts;
+	private ListSeries retries;
+	private ListSeries extraLatencies;
+
+	/**
+	 * A series to accumulate the simulated time the finished lookups took.
+	 */
+	private ListSeries latencies;
+
+	/**
+	 * The domains the hosts of the ring sit in, or null if the ring is flat.
+	 * Hops between domains pay the latency of their lowest common domain.
+	 */
+	private DomainTree domains;
+
+	/**
+	 * Series to accumulate, when the ring has domains, the inter-domain hops
+	 * of the finished lookups, the level of the lowest domain shared by the
+	 * origin and the node a lookup finished at, and the level of the outermost
+	 * domain of the origin a lookup got to.
+	 */
+	private ListSeries interDomainHops;
+	private ListSeries localities;
+	private ListSeries reaches;
+
+	/**
+	 * The time a node waits for a message to the next hop of a lookup to be
+	 * answered before retrying through another node, or 0 if a lookup reaching
+	 * a dead node fails right away.
+	 */
+	private double timeout;
+
+	/**
+	 * A flag indicating whether a query is initiated at an active node only,
+	 * rather than at any node.
+	 */
+	private boolean activeStart;
+
+	/**
+	 * The monitor accounting the messages exchanged in the ring, or null if
+	 * the traffic is not accounted.
+	 */
+	private TrafficMonitor traffic;
+
+	/**
+	 * The recorder of the simulated events in the ring, or null if the
+	 * events are not recorded.
+	 */
+	private TraceRecorder trace;
+
+	/**
+	 * The number of times a node was added to or removed from the ring or
+	 * changed its state, so routing tables can tell whether what they
+	 * resolved is still current.
+	 */
+	private long membership;
+
+	/**
+	 * The controller adapting the stabilization interval to the outcome of
+	 * the lookups, or null if the interval is fixed.
+	 */
+	private StabilizationController controller;
+
+	/**
+	 * The overlay routing of the nodes of the ring.
+	 */
+	private RoutingStrategy routing;
+
 	/**
 	 * Construct a new Chord ring with the given number of initial nodes.
 	 * 
@@ -92,30 +197,207 @@ public class ChordRing {
 	 */
 	public ChordRing(int base, int hashKeyLength, int initialNodes,
 			Simulation sim, Random rand, double meanProcTime) {
+		this(base, hashKeyLength, initialNodes, 1, sim, rand, meanProcTime);
+	}
+
+	/**
+	 * Construct a new Chord ring with the given number of initial physical
+	 * hosts, each running the given number of virtual nodes with hash keys
+	 * of their own.
+	 * 
+	 * @param base
+	 *            the base of the Chord
+	 * @param hashKeyLength
+	 *            the number of bits in the hash key
+	 * @param initialHosts
+	 *            the number of initial hosts
+	 * @param virtualNodes
+	 *            the number of virtual nodes per host
+	 * @param sim
+	 *            the Simulation object
+	 * @param rand
+	 *            the Random object
+	 * @param meanProcTime
+	 *            the mean query processing/forwarding time
+	 */
+	public ChordRing(int base, int hashKeyLength, int initialHosts,
+			int virtualNodes, Simulation sim, Random rand,
+			double meanProcTime) {
+		this(base, hashKeyLength, initialHosts, virtualNodes, sim, rand,
+				meanProcTime, new ChordRouting());
+	}
+
+	/**
+	 * Construct a new Chord ring with the given number of initial physical
+	 * hosts, each running the given number of virtual nodes with hash keys
+	 * of their own, whose nodes route lookups with the given strategy.
+	 * 
+	 * @param base
+	 *            the base of the Chord
+	 * @param hashKeyLength
+	 *            the number of bits in the hash key
+	 * @param initialHosts
+	 *            the number of initial hosts
+	 * @param virtualNodes
+	 *            the number of virtual nodes per host
+	 * @param sim
+	 *            the Simulation object
+	 * @param rand
+	 *            the Random object
+	 * @param meanProcTime
+	 *            the mean query processing/forwarding time
+	 * @param routing
+	 *            the RoutingStrategy object
+	 */
+	public ChordRing(int base, int hashKeyLength, int initialHosts,
+			int virtualNodes, Simulation sim, Random rand,
+			double meanProcTime, RoutingStrategy routing) {
+		this.routing = routing;
 		this.queryProcTimes = new ExponentialPrng(rand, 1.0 / meanProcTime);
 		this.sim = sim;
 		this.base = base;
 		this.hashKeyLength = hashKeyLength;
 		this.maxSize = (int) Math.pow(base, this.hashKeyLength);
 		this.nodeKeys = new ArrayList<Integer>();
-		this.nodes = new HashMap<Integer, Node>();
+		this.keyPositions = new HashMap<Integer, Integer>();
+		this.nodes = new TreeMap<Integer, Node>();
+		this.hosts = new ArrayList<Host>();
+		this.hostPositions = new HashMap<Host, Integer>();
 		this.lookups = new ListSeries();
+		this.hops = new ListSeries();
+		this.timeouts = new ListSeries();
+		this.retries = new ListSeries();
+		this.extraLatencies = new ListSeries();
+		this.latencies = new ListSeries();
+		this.interDomainHops = new ListSeries();
+		this.localities = new ListSeries();
+		this.reaches = new ListSeries();
 		this.queue = new LinkedList<Integer>();
-		for (int i = 0; i < initialNodes; i++) {
-			int x = rand.nextInt(maxSize);
-			while (nodes.containsKey(x)) {
-				x = rand.nextInt(maxSize);
+		for (int h = 0; h < initialHosts; h++) {
+			Host host = new Host(nextHostId++);
+			for (int i = 0; i < virtualNodes; i++) {
+				int x = rand.nextInt(maxSize);
+				while (nodes.containsKey(x)) {
+					x = rand.nextInt(maxSize);
+				}
+				Node node = new Node(x, this, sim, queryProcTimes, lookups);
+				host.addNode(node);
+				index(node);
 			}
-			nodes.put(x, new Node(x, this, sim, queryProcTimes, lookups));
-			nodeKeys.add(x);
+			addHost(host);
 		}
 		// Update the finger table entries and successor information of
-		// all the nodes in the ring.
-		for (int i = 0; i < initialNodes; i++) {
+		// all the nodes in the ring, once they are all placed on the ring.
+		for (int i = 0; i < nodeKeys.size(); i++) {
 			nodes.get(nodeKeys.get(i)).join();
 		}
-		// Sort the node hash keys for placing them on the Chord ring.
-		Collections.sort(nodeKeys);
+	}
+
+	/**
+	 * Adds a host to the list of hosts.
+	 * 
+	 * @param host
+	 *            the Host object
+	 */
+	private void addHost(Host host) {
+		hostPositions.put(host, hosts.size());
+		hosts.add(host);
+	}
+
+	/**
+	 * Removes a host from the list of hosts. The last host of the list takes
+	 * the place of the removed one.
+	 * 
+	 * @param host
+	 *            the Host object
+	 */
+	private void removeHost(Host host) {
+		int position = hostPositions.remove(host);
+		Host last = hosts.remove(hosts.size() - 1);
+		if (last != host) {
+			hosts.set(position, last);
+			hostPositions.put(last, position);
+		}
+	}
+
+	/**
+	 * Adds a node to the node index of the ring.
+	 * 
+	 * @param node
+	 *            the Node object
+	 */
+	private void index(Node node) {
+		membership++;
+		nodes.put(node.getId(), node);
+		keyPositions.put(node.getId(), nodeKeys.size());
+		nodeKeys.add(node.getId());
+	}
+
+	/**
+	 * Removes a node from the node index of the ring. The last hash key of
+	 * the list of hash keys takes the place of the removed one.
+	 * 
+	 * @param node
+	 *            the Node object
+	 */
+	private void unindex(Node node) {
+		membership++;
+		nodes.remove(node.getId());
+		int position = keyPositions.remove(node.getId());
+		int last = nodeKeys.remove(nodeKeys.size() - 1);
+		if (last != node.getId()) {
+			nodeKeys.set(position, last);
+			keyPositions.put(last, position);
+		}
+	}
+
+	/**
+	 * Adds a new node with the given hash key to the ring. The node joins the
+	 * ring: it sets up its finger table and successor and notifies the
+	 * successor, which hands off the data the new node is responsible for.
+	 * The rest of the ring learns about the node through stabilization. The
+	 * node runs on a physical host of its own.
+	 * 
+	 * @param id
+	 *            the hash key of the new node
+	 * @return the new Node object, or null if the hash key is taken
+	 */
+	public Node addNode(int id) {
+		if (nodes.containsKey(id))
+			return null;
+		Node node = new Node(id, this, sim, queryProcTimes, lookups);
+		Host host = new Host(nextHostId++);
+		host.addNode(node);
+		addHost(host);
+		index(node);
+		MembershipEvent.emit(id, true, sim.time());
+		if (trace != null)
+			trace.record(sim.time(), TraceRecorder.JOIN, id, -1, -1, -1, 0);
+		node.join();
+		return node;
+	}
+
+	/**
+	 * Removes the node with the given hash key from the ring for good. The
+	 * node leaves the ring gracefully: it hands its data off to its successor
+	 * and links its predecessor and successor to each other. The fingers of
+	 * the rest of the ring are fixed through stabilization.
+	 * 
+	 * @param id
+	 *            the hash key of the node
+	 * @return the removed Node object, or null if there is no such node
+	 */
+	public Node removeNode(int id) {
+		Node node = nodes.get(id);
+		if (node == null)
+			return null;
+		node.leave();
+		unindex(node);
+		Host host = node.getHost();
+		host.removeNode(node);
+		if (host.getNodes().isEmpty())
+			removeHost(host);
+		return node;
 	}
 
 	/**
@@ -128,24 +410,59 @@ public class ChordRing {
 	 * @return true if data added successfully, false otherwise
 	 */
 	public boolean addDataToNode(Data data) {
-		int entry = data.hashCode();
-		if (nodeKeys.contains(entry)) {
-			data.setNode(nodes.get(entry));
-			return nodes.get(entry).addData(data);
-		}
-		for (int j = entry; j < maxSize; j++) {
-			if (nodeKeys.contains(j)) {
-				data.setNode(nodes.get(j));
-				return nodes.get(j).addData(data);
-			}
-		}
-		for (int j = 0; j < entry; j++) {
-			if (nodeKeys.contains(j)) {
-				data.setNode(nodes.get(j));
-				return nodes.get(j).addData(data);
-			}
+		if (nodes.isEmpty())
+			return false;
+		Map.Entry<Integer, Node> entry = nodes.ceilingEntry(data.hashCode());
+		if (entry == null)
+			entry = nodes.firstEntry();
+		data.setNode(entry.getValue());
+		return entry.getValue().addData(data);
+	}
+
+	/**
+	 * Adds the given data items on the appropriate nodes in the Chord ring in
+	 * bulk, with the same placement as addDataToNode. The hash keys are packed
+	 * with the positions of the items into longs and sorted with a parallel
+	 * sort, then merge-joined with the sorted hash keys of the nodes, so that
+	 * every node gets its items in one batch. Items with equal hash keys stay
+	 * in their given order, so the last one is stored.
+	 * <P>
+	 * Loading N items on M nodes takes O(N log N + M) time without a lookup
+	 * per item.
+	 * 
+	 * @param dataItems
+	 *            the collection of Data objects
+	 * @return the number of new hash keys stored
+	 */
+	public int addAllData(Collection<Data> dataItems) {
+		if (nodes.isEmpty() || dataItems.isEmpty())
+			return 0;
+		Data[] items = dataItems.toArray(new Data[dataItems.size()]);
+		// Hash keys are non-negative, so the packed longs sort by hash key,
+		// then by position.
+		long[] packed = new long[items.length];
+		for (int i = 0; i < items.length; i++)
+			packed[i] = ((long) items[i].hashCode() << 32) | i;
+		Arrays.parallelSort(packed);
+		Data[] sorted = new Data[items.length];
+		for (int i = 0; i < packed.length; i++)
+			sorted[i] = items[(int) packed[i]];
+
+		int added = 0;
+		int from = 0;
+		for (Node node : nodes.values()) {
+			int to = from;
+			while (to < sorted.length && sorted[to].hashCode() <= node.getId())
+				to++;
+			if (to > from)
+				added += node.addAllData(sorted, from, to);
+			from = to;
 		}
-		return false;
+		// The hash keys past the last node wrap around to the first node.
+		if (from < sorted.length)
+			added += nodes.firstEntry().getValue()
+					.addAllData(sorted, from, sorted.length);
+		return added;
 	}
 
 	/**
@@ -159,17 +476,60 @@ public class ChordRing {
 	 */
 	public Node getFingerTableEntry(int nodeKey, int i) {
 		int entry = (nodeKey + (int) Math.pow(base, i)) % maxSize;
-		for (int j = entry; j < maxSize; j++) {
-			if (nodeKeys.contains(j) && nodes.get(j).isAlive())
-				return nodes.get(j);
+		for (Node node : nodes.tailMap(entry, true).values()) {
+			if (node.isAlive())
+				return node;
 		}
-		for (int j = 0; j < entry; j++) {
-			if (nodeKeys.contains(j) && nodes.get(j).isAlive())
-				return nodes.get(j);
+		for (Node node : nodes.headMap(entry, false).values()) {
+			if (node.isAlive())
+				return node;
 		}
 		return null;
 	}
 
+	/**
+	 * Returns the fraction of the active nodes whose successor is the next
+	 * active node on the ring, a measure of how far the ring has converged
+	 * after nodes joined or left.
+	 * 
+	 * @return the fraction of correct successors, between 0 and 1
+	 */
+	public double successorAccuracy() {
+		int active = 0;
+		int correct = 0;
+		for (Node node : nodes.values()) {
+			if (node.isAlive()) {
+				active++;
+				if (node.getSuccessor() == getFingerTableEntry(
+						node.getId(), 0))
+					correct++;
+			}
+		}
+		return active == 0 ? 1 : correct / (double) active;
+	}
+
+	/**
+	 * Returns the fraction of the routing table entries of the active nodes
+	 * that point to the node they should point to.
+	 * 
+	 * @return the fraction of correct fingers, between 0 and 1
+	 */
+	public double fingerAccuracy() {
+		long entries = 0;
+		long correct = 0;
+		for (Node node : nodes.values()) {
+			if (node.isAlive()) {
+				RoutingTable table = node.getFingerTable();
+				for (int i = 0; i < table.size(); i++) {
+					entries++;
+					if (table.getIthEntry(i) == table.resolve(node.getId(), i))
+						correct++;
+				}
+			}
+		}
+		return entries == 0 ? 1 : correct / (double) entries;
+	}
+
 	/**
 	 * Adds a query Data object's hash key in the query queue for lookup.
 	 * 
@@ -182,13 +542,21 @@ public class ChordRing {
 
 	/**
 	 * Initiates a query lookup at a random start node in the ring until the
-	 * query queue becomes empty.
+	 * query queue becomes empty. If the lookups start at active nodes only,
+	 * inactive start nodes are drawn again.
 	 */
 	public void lookup() {
 		if (!queue.isEmpty()) {
 			int dataKey = queue.remove();
 			int startNodeKey = nodeKeys.get(new java.util.Random()
 					.nextInt(nodeKeys.size()));
+			// A query is initiated by a client of an active node, unless no
+			// active node can be found.
+			for (int tries = 0; activeStart && tries < nodeKeys.size()
+					&& !nodes.get(startNodeKey).isAlive(); tries++) {
+				startNodeKey = nodeKeys.get(new java.util.Random()
+						.nextInt(nodeKeys.size()));
+			}
 			if (verbose) {
 				System.out.println("Remaining queries: " + queue.size());
 				System.out.println();
@@ -226,16 +594,17 @@ public class ChordRing {
 	}
 
 	/**
-	 * Returns the map of nodes in the Chord Ring.
+	 * Returns the map of nodes in the Chord Ring, sorted by hash key.
 	 * 
 	 * @return the map of nodes in the Chord Ring.
 	 */
-	public Map<Integer, Node> getNodes() {
+	public NavigableMap<Integer, Node> getNodes() {
 		return this.nodes;
 	}
 
 	/**
-	 * Returns the list of node hash keys in the Chord Ring.
+	 * Returns the list of node hash keys in the Chord Ring, in no particular
+	 * order. The list changes as nodes are added and removed.
 	 * 
 	 * @return the list of node hash keys in the Chord Ring.
 	 */
@@ -243,6 +612,16 @@ public class ChordRing {
 		return this.nodeKeys;
 	}
 
+	/**
+	 * Returns the list of physical hosts running the nodes in the Chord Ring,
+	 * in no particular order.
+	 * 
+	 * @return the list of Host objects
+	 */
+	public List<Host> getHosts() {
+		return this.hosts;
+	}
+
 	/**
 	 * Returns the number of bits in the hash key.
 	 * 
@@ -252,6 +631,15 @@ public class ChordRing {
 		return this.hashKeyLength;
 	}
 
+	/**
+	 * Returns the overlay routing of the nodes of the ring.
+	 * 
+	 * @return the RoutingStrategy object
+	 */
+	public RoutingStrategy getRouting() {
+		return routing;
+	}
+
 	/**
 	 * Returns the list series containing information of successful/failed
 	 * lookups.
@@ -263,6 +651,232 @@ public class ChordRing {
 		return this.lookups;
 	}
 	
+	/**
+	 * Returns the list series containing the number of hops of the finished
+	 * lookups.
+	 * 
+	 * @return the list series containing the hops of the lookups.
+	 */
+	public ListSeries getHopSeries() {
+		return this.hops;
+	}
+
+	/**
+	 * Returns the list series containing the number of timeouts of the
+	 * finished lookups.
+	 * 
+	 * @return the list series containing the timeouts of the lookups.
+	 */
+	public ListSeries getTimeoutSeries() {
+		return this.timeouts;
+	}
+
+	/**
+	 * Returns the list series containing the number of retries of the
+	 * finished lookups.
+	 * 
+	 * @return the list series containing the retries of the lookups.
+	 */
+	public ListSeries getRetrySeries() {
+		return this.retries;
+	}
+
+	/**
+	 * Returns the list series containing the time the finished lookups lost
+	 * waiting for dead nodes.
+	 * 
+	 * @return the list series containing the extra latency of the lookups.
+	 */
+	public ListSeries getExtraLatencySeries() {
+		return this.extraLatencies;
+	}
+
+	/**
+	 * Returns the list series containing the simulated time the finished
+	 * lookups took.
+	 * 
+	 * @return the list series containing the latency of the lookups.
+	 */
+	public ListSeries getLatencySeries() {
+		return this.latencies;
+	}
+
+	/**
+	 * Returns the list series containing the number of hops between different
+	 * leaf domains of the finished lookups, when the ring has domains.
+	 * 
+	 * @return the list series containing the inter-domain hops of the lookups.
+	 */
+	public ListSeries getInterDomainHopSeries() {
+		return this.interDomainHops;
+	}
+
+	/**
+	 * Returns the list series containing the level of the lowest domain shared
+	 * by the origin of every finished lookup and the node it finished at, when
+	 * the ring has domains.
+	 * 
+	 * @return the list series containing the locality of the lookups.
+	 */
+	public ListSeries getLocalitySeries() {
+		return this.localities;
+	}
+
+	/**
+	 * Returns the list series containing the level of the outermost domain of
+	 * the origin every finished lookup got to, when the ring has domains. A
+	 * lookup that was not forwarded stays at the leaf level.
+	 * 
+	 * @return the list series containing the reach of the lookups.
+	 */
+	public ListSeries getReachSeries() {
+		return this.reaches;
+	}
+
+	/**
+	 * Sets the domains the hosts of the ring sit in. Every hop of a lookup
+	 * then pays the latency of the lowest domain its two nodes are in, on top
+	 * of the forwarding time.
+	 * 
+	 * @param domains
+	 *            the DomainTree object, or null for a flat ring
+	 */
+	public void setDomains(DomainTree domains) {
+		this.domains = domains;
+	}
+
+	/**
+	 * Returns the domains the hosts of the ring sit in.
+	 * 
+	 * @return the DomainTree object, or null if the ring is flat
+	 */
+	public DomainTree getDomains() {
+		return this.domains;
+	}
+
+	/**
+	 * Sets the time a node waits for the next hop of a lookup to answer before
+	 * retrying through another node.
+	 * 
+	 * @param timeout
+	 *            the timeout, or 0 to fail lookups reaching a dead node
+	 */
+	public void setTimeout(double timeout) {
+		this.timeout = timeout;
+	}
+
+	/**
+	 * Sets whether a query is initiated at an active node only. By default
+	 * the start node is drawn among all the nodes, and a lookup started at
+	 * an inactive node fails.
+	 * 
+	 * @param activeStart
+	 *            true to start the lookups at active nodes only
+	 */
+	public void setActiveStart(boolean activeStart) {
+		this.activeStart = activeStart;
+	}
+
+	/**
+	 * Returns the time a node waits for the next hop of a lookup to answer
+	 * before retrying through another node.
+	 * 
+	 * @return the timeout, or 0 if lookups reaching a dead node fail
+	 */
+	public double getTimeout() {
+		return this.timeout;
+	}
+
+	/**
+	 * Sets the monitor accounting the messages exchanged in the ring.
+	 * 
+	 * @param traffic
+	 *            the TrafficMonitor object, or null to disable accounting
+	 */
+	public void setTrafficMonitor(TrafficMonitor traffic) {
+		this.traffic = traffic;
+	}
+
+	/**
+	 * Returns the monitor accounting the messages exchanged in the ring.
+	 * 
+	 * @return the TrafficMonitor object, or null if accounting is disabled
+	 */
+	public TrafficMonitor getTrafficMonitor() {
+		return this.traffic;
+	}
+
+	/**
+	 * Sets the controller told about the outcome of every finished lookup.
+	 * 
+	 * @param controller
+	 *            the StabilizationController object, or null if none
+	 */
+	public void setStabilizationController(StabilizationController controller) {
+		this.controller = controller;
+	}
+
+	/**
+	 * Returns the controller told about the outcome of every finished lookup.
+	 * 
+	 * @return the StabilizationController object, or null if none
+	 */
+	public StabilizationController getStabilizationController() {
+		return this.controller;
+	}
+
+	/**
+	 * Sets the recorder of the simulated events in the ring. The current
+	 * state of every node, i.e. whether it is active and its successor and
+	 * predecessor, is recorded first, so the trace can be replayed from this
+	 * point on.
+	 * 
+	 * @param trace
+	 *            the TraceRecorder object, or null to disable recording
+	 */
+	public void setTraceRecorder(TraceRecorder trace) {
+		this.trace = trace;
+		if (trace == null)
+			return;
+		for (Node node : nodes.values()) {
+			int key = node.getId();
+			trace.record(sim.time(), node.isAlive() ? TraceRecorder.JOIN
+					: TraceRecorder.LEAVE, key, -1, -1, -1, 0);
+			Node successor = node.getSuccessor();
+			trace.record(sim.time(), TraceRecorder.SUCCESSOR, key,
+					successor == null ? -1 : successor.getId(), -1, -1, 0);
+			Node predecessor = node.getPredecessor();
+			trace.record(sim.time(), TraceRecorder.PREDECESSOR, key,
+					predecessor == null ? -1 : predecessor.getId(), -1, -1, 0);
+		}
+	}
+
+	/**
+	 * Returns the recorder of the simulated events in the ring.
+	 * 
+	 * @return the TraceRecorder object, or null if recording is disabled
+	 */
+	public TraceRecorder getTraceRecorder() {
+		return this.trace;
+	}
+
+	/**
+	 * Records that a node of the ring turned active or inactive.
+	 */
+	public void membershipChanged() {
+		membership++;
+	}
+
+	/**
+	 * Returns the number of changes of the membership of the ring so far,
+	 * i.e. nodes added, removed, or turning active or inactive.
+	 * 
+	 * @return the membership version
+	 */
+	public long getMembershipVersion() {
+		return membership;
+	}
+
 	/**
 	 * Checks if the query queue is empty.
 	 * 
@@ -277,6 +891,6 @@ public class ChordRing {
 	public static void main(String[] a) {
 		ChordRing ring = new ChordRing(2, 10, 512, new Simulation(),
 				Random.getInstance(31413), 1);
-		System.out.println(ring.nodeKeys);
+		System.out.println(ring.nodes.keySet());
 	}
 }
@@ -0,0 +1,114 @@
+/**
+ * Class ChordRouting is the routing of the Chord DHT. Every node keeps a
+ * finger table whose ith entry is the successor of the hash key base^i past
+ * the node, and a lookup is forwarded to the successor if the key lies
+ * between the node and its successor, otherwise to the finger with the
+ * largest hash key lesser than the key, taking O(log N) hops.
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+public class ChordRouting implements RoutingStrategy {
+
+	public RoutingTable createTable(ChordRing ring, Node node) {
+		return new FingerTable(ring);
+	}
+
+	public void maintain(Node node) {
+		node.getFingerTable().update(node.getId());
+	}
+
+	/**
+	 * Returns the successor if the key lies between the node and its
+	 * successor, otherwise the finger table entry with the largest hash key
+	 * lesser than the key. Entries marked suspect after a timeout are passed
+	 * over.
+	 */
+	public Node nextHop(Node node, Lookup lookup) {
+		RoutingTable table = node.getFingerTable();
+		int id = node.getId();
+		int dataKey = lookup.getDataKey();
+		if (dataKey > id) {
+			Node succs = table.getIthEntry(0);
+			if (dataKey < succs.getId() || succs.getId() < id)
+				return unsuspected(node, table, 0);
+		}
+		ChordRing ring = node.getRing();
+		int diff = 0;
+		if (dataKey > id) {
+			diff = dataKey - id;
+		} else {
+			diff = ring.ringMaxSize() - 1 + dataKey - id;
+		}
+		for (int i = 1; i < table.size(); i++) {
+			if ((int) Math.pow(ring.ringBase(), i) > diff)
+				return unsuspected(node, table, i - 1);
+		}
+		return unsuspected(node, table, table.size() - 1);
+	}
+
+	/**
+	 * Returns the next best preceding finger or the successor, i.e. the next
+	 * hop now that the dead node is suspect, unless every entry is.
+	 */
+	public Node alternateHop(Node node, Lookup lookup, Node dead) {
+		Node next = nextHop(node, lookup);
+		RoutingTable table = node.getFingerTable();
+		for (int i = 0; i < table.size(); i++) {
+			if (table.getIthEntry(i) == next && table.isSuspect(i))
+				return null;
+		}
+		return next;
+	}
+
+	/**
+	 * Returns the given finger table entry, or if it is suspect the closest
+	 * preceding entry that is not. If all of them are suspect, the lookup
+	 * falls back to the first successor that is not suspect, found through
+	 * the successors of the suspect ones as a successor list would, i.e. the
+	 * node taking the data of a dead successor over. A following finger is
+	 * never taken, as it may lie past the key. If no successor is left
+	 * either, the suspect successor is returned, so the lookup fails once it
+	 * times out.
+	 * 
+	 * @param node
+	 *            the node the lookup is at
+	 * @param table
+	 *            the finger table
+	 * @param i
+	 *            the entry index
+	 * @return the Node object
+	 */
+	private static Node unsuspected(Node node, RoutingTable table, int i) {
+		for (int j = i; j >= 0; j--) {
+			if (!table.isSuspect(j))
+				return table.getIthEntry(j);
+		}
+		Node successor = table.getIthEntry(0);
+		Node next = successor.getSuccessor();
+		for (int k = 0; k < table.size() && next != null && next != node; k++) {
+			if (!isSuspect(table, next))
+				return next;
+			next = next.getSuccessor();
+		}
+		return successor;
+	}
+
+	/**
+	 * Checks whether the given node is suspect in the given finger table,
+	 * i.e. any entry pointing to it is.
+	 * 
+	 * @param table
+	 *            the finger table
+	 * @param node
+	 *            the Node object
+	 * @return true if the node is suspect, false otherwise
+	 */
+	private static boolean isSuspect(RoutingTable table, Node node) {
+		for (int j = 0; j < table.size(); j++) {
+			if (table.getIthEntry(j) == node && table.isSuspect(j))
+				return true;
+		}
+		return false;
+	}
+}
@@ -1,7 +1,7 @@
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
-import edu.rit.numeric.ListSeries;
 import edu.rit.sim.Simulation;
 import edu.rit.util.Random;
 
@@ -16,15 +16,21 @@ public class ChordSimulation04 {
 	private static int base = 2;
 	private static int initialNodes = 12;
 	private static int hashKeyLength = 10;
+	private static String resultsFile = "chord04.csv";
+	private static String traceFile = "chord04.trace";
 
-	public static void main(String[] args) {
+	public static void main(String[] args) throws IOException {
 		// base = Integer.parseInt(args[0]);
 		// initialNodes = Integer.parseInt(args[1]);
 		// meanQueryProcTime = Double.parseDouble(args[2]);
 		// seed = Integer.parseInt(args[3]);
+		if (args.length > 0)
+			resultsFile = args[0];
+		if (args.length > 1)
+			traceFile = args[1];
 
-		ChordRing.verbose = true;
-		Node.verbose = true;
+		ChordRing.verbose = false;
+		Node.verbose = false;
 
 		rand = Random.getInstance(seed);
 
@@ -53,19 +59,21 @@ public class ChordSimulation04 {
 		ring = new ChordRing(base, hashKeyLength, initialNodes, sim, rand,
 				meanQueryProcTime);
 
-		for (Data data : dataList) {
-			ring.addDataToNode(data);
-		}
+		ring.addAllData(dataList);
 		System.out.println(queryList);
 		for (Data data : queryList) {
 			ring.addQuery(data.hashCode());
 		}
 
+		TraceRecorder trace = new TraceRecorder(traceFile);
+		ring.setTraceRecorder(trace);
+
 		new Churner(sim, rand, 1, ring, 1, true);
 //		 new Churner(sim, rand, 1, ring, 1, false);
 
 		ring.lookup();
 		sim.run();
+		trace.close();
 
 		System.out.println();
 		System.out.println("Total number of queries\t: "
@@ -73,5 +81,13 @@ public class ChordSimulation04 {
 		System.out.println("Lookup Success Ratio\t: "
 				+ ring.getSeries().stats().mean);
 
+		ResultSink results = ResultSinks.open(resultsFile, "seed", "queries",
+				"success");
+		results.write(seed, ring.getSeries().length(),
+				ring.getSeries().stats().mean);
+		results.close();
+		System.out.println("Trace records\t\t: " + trace.getRecords()
+				+ " in " + traceFile);
+
 	}
 }
@@ -1,11 +1,7 @@
-import java.awt.Color;
-import java.text.DecimalFormat;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
-import edu.rit.numeric.AggregateXYSeries;
-import edu.rit.numeric.ListSeries;
-import edu.rit.numeric.plot.Plot;
 import edu.rit.sim.Simulation;
 import edu.rit.util.Random;
 
@@ -20,12 +16,21 @@ public class ChordSimulation06 {
 	private static int base = 2;
 	private static int hashKeyLength = 10;
 	private static int initialNodes = 32;
+	private static double timeout = 2.0;
+	private static double trafficWindow = 1.0;
+	private static int dataItemBytes = 64;
+	private static String resultsFile = "chord06.csv";
+	private static String trafficFile = "chord06-traffic.csv";
 
-	public static void main(String[] args) {
+	public static void main(String[] args) throws IOException {
 		// base = Integer.parseInt(args[0]);
 		// initialNodes = Integer.parseInt(args[1]);
 		// meanQueryProcTime = Double.parseDouble(args[2]);
 		// seed = Integer.parseInt(args[3]);
+		if (args.length > 0)
+			resultsFile = args[0];
+		if (args.length > 1)
+			trafficFile = args[1];
 
 		ChordRing.verbose = false;
 		Node.verbose = false;
@@ -35,12 +40,21 @@ public class ChordSimulation06 {
 
 		initialNodes = 1000;// (int) (Math.pow(base, hashKeyLength) * 0.5);
 
-		ListSeries stimes = new ListSeries();
-		ListSeries ratiosWoS = new ListSeries();
-		ListSeries ratiosWS = new ListSeries();
+		String[] columns = { "churn", "failure_nostab", "failure_stab",
+				"failure_timeout", "timeouts", "retries", "extra_latency" };
+		AggregateResultSink means = new AggregateResultSink(columns);
+		ResultSink results = new MultiResultSink(ResultSinks.open(
+				resultsFile, columns), means);
 
-		System.out.println("\tStabilize OFF\t\tStabilize ON");
-		System.out.println("churn\tLookup Failure\t\tLookup Failure");
+		System.out.println("\tStabilize OFF\t\tStabilize ON\t\tStabilize ON, "
+				+ "Timeout " + timeout);
+		System.out.println("churn\tLookup Failure\t\tLookup Failure\t\t"
+				+ "Lookup Failure\tTimeouts\tRetries\tExtra Latency");
+
+		ResultSink trafficOut = ResultSinks.open(trafficFile,
+				TrafficMonitor.columns("churn", "stabilize"));
+		TrafficMonitor traffic = new TrafficMonitor(trafficOut, trafficWindow,
+				TrafficMonitor.keyBytes(base, hashKeyLength), dataItemBytes);
 
 		List<Data> dataList = new ArrayList<Data>();
 		for (int i = 0; i < initialNodes * 1.5; i++) {
@@ -59,63 +73,79 @@ public class ChordSimulation06 {
 		}
 
 		for (double churnrate = 0.1; churnrate <= 5.0; churnrate += 0.1) {
-			stimes.add(churnrate);
 			System.out.printf("%.2f", churnrate);
 			sim = new Simulation();
 
 			ring = new ChordRing(base, hashKeyLength, initialNodes, sim, rand,
 					meanQueryProcTime);
-			for (Data data : dataList) {
-				ring.addDataToNode(data);
-			}
+			ring.addAllData(dataList);
 			for (Data data : queryList) {
 				ring.addQuery(data.hashCode());
 			}
 
+			ring.setTrafficMonitor(traffic);
+			traffic.begin(churnrate, 0);
 			new Churner(sim, rand, churnrate, ring, 1, false);
 
 			ring.lookup();
 			sim.run();
-			ratiosWoS.add(1 - ring.getSeries().stats().mean);
-			System.out
-					.printf("\t%.3f\t\t\t", 1 - ring.getSeries().stats().mean);
+			traffic.end();
+			double failureWoS = 1 - ring.getSeries().stats().mean;
+			System.out.printf("\t%.3f\t\t\t", failureWoS);
 
 			sim = new Simulation();
 
 			ring = new ChordRing(base, hashKeyLength, initialNodes, sim, rand,
 					meanQueryProcTime);
-			for (Data data : dataList) {
-				ring.addDataToNode(data);
-			}
+			ring.addAllData(dataList);
 			for (Data data : queryList) {
 				ring.addQuery(data.hashCode());
 			}
 
+			ring.setTrafficMonitor(traffic);
+			traffic.begin(churnrate, 1);
 			new Churner(sim, rand, churnrate, ring, 0.5, true);
 
 			ring.lookup();
 			sim.run();
-			ratiosWS.add(1 - ring.getSeries().stats().mean);
-			System.out.printf("%.3f\n", 1 - ring.getSeries().stats().mean);
-		}
+			traffic.end();
+			double failureWS = 1 - ring.getSeries().stats().mean;
+			System.out.printf("%.3f\t\t\t", failureWS);
 
-		System.out.println("Mean lookup failure ratio : "
-				+ ratiosWoS.stats().mean);
-		System.out.println("Mean lookup failure ratio : "
-				+ ratiosWS.stats().mean);
+			sim = new Simulation();
 
-		Plot plot = new Plot();
+			ring = new ChordRing(base, hashKeyLength, initialNodes, sim, rand,
+					meanQueryProcTime);
+			ring.addAllData(dataList);
+			for (Data data : queryList) {
+				ring.addQuery(data.hashCode());
+			}
 
-		plot = new Plot().rightMargin(36).xAxisTitle("Churn rate")
-				.xAxisTickFormat(new DecimalFormat("0.0"))
-				.yAxisTitle("Fraction of lookups failed")
-				.yAxisTickFormat(new DecimalFormat("0.0")).seriesDots(null)
+			ring.setTimeout(timeout);
+			new Churner(sim, rand, churnrate, ring, 0.5, true);
 
-				.seriesColor(Color.RED)
-				.xySeries(new AggregateXYSeries(stimes, ratiosWS));
-		;
+			ring.lookup();
+			sim.run();
+			double failureWT = 1 - ring.getSeries().stats().mean;
+			double timeouts = ring.getTimeoutSeries().stats().mean;
+			double retries = ring.getRetrySeries().stats().mean;
+			double extraLatency = ring.getExtraLatencySeries().stats().mean;
+			System.out.printf("%.3f\t\t%.3f\t\t%.3f\t%.3f\n", failureWT,
+					timeouts, retries, extraLatency);
+
+			results.write(churnrate, failureWoS, failureWS, failureWT,
+					timeouts, retries, extraLatency);
+			results.flush();
+		}
 
-		plot.getFrame().setVisible(true);
+		System.out.println("Mean lookup failure ratio : "
+				+ means.mean("failure_nostab"));
+		System.out.println("Mean lookup failure ratio : "
+				+ means.mean("failure_stab"));
+		System.out.println("Mean lookup failure ratio : "
+				+ means.mean("failure_timeout"));
+		results.close();
+		trafficOut.close();
 
 	}
 }
@@ -0,0 +1,182 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.rit.numeric.ListSeries;
+import edu.rit.sim.Event;
+import edu.rit.sim.Simulation;
+import edu.rit.util.Random;
+
+/**
+ * Class ChordSimulation07 simulates correlated mass failures in a Chord ring.
+ * While queries are looked up, a fraction of the nodes fails at once, either
+ * chosen at random or as a contiguous arc of hash keys, the ring is repaired
+ * in bulk after a delay, and the nodes are revived later on. For every failed
+ * fraction it reports the lookup failure ratio before, during and after the
+ * outage, and the wall-clock time of the bulk repair. The bulk repair restores
+ * the routing state and hands the data of the failed nodes off at once, so
+ * the outage lasts exactly until the repair.
+ * <P>
+ * Usage: java ChordSimulation07 [<I>resultsFile</I>]
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+public class ChordSimulation07 {
+
+	private static double meanQueryProcTime = 1.0;
+	private static int seed = 271828;
+	private static Random rand;
+	private static Simulation sim;
+	private static ChordRing ring;
+	private static int base = 2;
+	private static int hashKeyLength = 12;
+	private static int initialNodes = 1000;
+	private static int queries = 2000;
+	private static double failTime = 500;
+	private static double repairDelay = 100;
+	private static double reviveTime = 1200;
+	private static double sampleInterval = 20;
+	private static String resultsFile = "chord07.csv";
+
+	// Lookup outcomes sampled every sample interval.
+	private static List<Double> sampleTimes;
+	private static List<Double> sampleFailures;
+	private static int sampled;
+	private static double repairMillis;
+
+	public static void main(String[] args) throws IOException {
+		if (args.length > 0)
+			resultsFile = args[0];
+
+		ChordRing.verbose = false;
+		Node.verbose = false;
+
+		rand = Random.getInstance(seed);
+
+		List<Data> dataList = new ArrayList<Data>();
+		for (int i = 0; i < initialNodes * 1.5; i++) {
+			Data data = new Data(base, hashKeyLength);
+			dataList.add(data);
+		}
+		java.util.Random picker = new java.util.Random(seed);
+		int[] queryKeys = new int[queries];
+		for (int i = 0; i < queries; i++)
+			queryKeys[i] = dataList.get(picker.nextInt(dataList.size()))
+					.hashCode();
+
+		ResultSink results = ResultSinks.open(resultsFile, "arc", "fraction",
+				"failed", "failure_before", "failure_outage",
+				"failure_after", "repair_millis");
+
+		System.out.println("arc\tfraction\tfailed\tbefore\toutage\tafter\t"
+				+ "repair ms");
+		for (int arc = 0; arc <= 1; arc++) {
+			for (double fraction = 0.1; fraction <= 0.51; fraction += 0.1) {
+				sim = new Simulation();
+				ring = new ChordRing(base, hashKeyLength, initialNodes, sim,
+						rand, meanQueryProcTime);
+				// A client of a failed node cannot start a lookup, so the
+				// failed lookups are those routed through the outage.
+				ring.setActiveStart(true);
+				ring.addAllData(dataList);
+				for (int key : queryKeys)
+					ring.addQuery(key);
+
+				final FailureInjector injector = new FailureInjector(ring,
+						rand);
+				final List<Node> failed = new ArrayList<Node>();
+				final int start = rand.nextInt(ring.ringMaxSize());
+				final int length = (int) (fraction * ring.ringMaxSize());
+				final double f = fraction;
+				final boolean byArc = arc == 1;
+				sim.doAt(failTime, new Event() {
+					public void perform() {
+						failed.addAll(byArc ? injector.failArc(start, length)
+								: injector.failFraction(f));
+					}
+				});
+				sim.doAt(failTime + repairDelay, new Event() {
+					public void perform() {
+						long t0 = System.nanoTime();
+						injector.repair();
+						repairMillis = (System.nanoTime() - t0) / 1e6;
+					}
+				});
+				sim.doAt(reviveTime, new Event() {
+					public void perform() {
+						injector.revive(failed);
+						injector.repair();
+					}
+				});
+				sampleTimes = new ArrayList<Double>();
+				sampleFailures = new ArrayList<Double>();
+				sampled = 0;
+				sample();
+
+				ring.lookup();
+				sim.run();
+
+				double before = failureRatio(0, failTime);
+				double outage = failureRatio(failTime, failTime + repairDelay);
+				double after = failureRatio(failTime + repairDelay,
+						reviveTime);
+				System.out.printf("%d\t%.1f\t\t%d\t%.3f\t%.3f\t%.3f\t%.2f\n",
+						arc, fraction, failed.size(), before, outage, after,
+						repairMillis);
+				results.write(arc, fraction, failed.size(), before, outage,
+						after, repairMillis);
+				results.flush();
+			}
+		}
+		results.close();
+	}
+
+	/**
+	 * Samples the lookups finished since the last sample and schedules the
+	 * next sample, until all the queries are looked up.
+	 */
+	private static void sample() {
+		ListSeries series = ring.getSeries();
+		int failures = 0;
+		for (int i = sampled; i < series.length(); i++)
+			if (series.x(i) == 0)
+				failures++;
+		int finished = series.length() - sampled;
+		sampled = series.length();
+		sampleTimes.add(sim.time());
+		sampleFailures.add(finished == 0 ? Double.NaN : failures
+				/ (double) finished);
+		if (!ring.isQueueEmpty()) {
+			sim.doAfter(sampleInterval, new Event() {
+				public void perform() {
+					sample();
+				}
+			});
+		}
+	}
+
+	/**
+	 * Returns the lookup failure ratio over the samples taken in the given
+	 * period of simulated time.
+	 * 
+	 * @param from
+	 *            the start of the period, exclusive
+	 * @param to
+	 *            the end of the period, inclusive
+	 * @return the mean failure ratio
+	 */
+	private static double failureRatio(double from, double to) {
+		double sum = 0;
+		int n = 0;
+		for (int i = 0; i < sampleTimes.size(); i++) {
+			double t = sampleTimes.get(i);
+			double x = sampleFailures.get(i);
+			if (t > from && t <= to && !Double.isNaN(x)) {
+				sum += x;
+				n++;
+			}
+		}
+		return n == 0 ? 0 : sum / n;
+	}
+}
@@ -0,0 +1,198 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.rit.numeric.ExponentialPrng;
+import edu.rit.numeric.ListSeries;
+import edu.rit.sim.Event;
+import edu.rit.sim.Simulation;
+import edu.rit.util.Random;
+
+/**
+ * Class ChordSimulation08 simulates the elastic scale-out and scale-in of a
+ * Chord ring under load. While queries are looked up and every node runs the
+ * stabilization procedure periodically, a batch of nodes with new hash keys
+ * joins the ring, and later a batch of nodes leaves the ring for good. The
+ * accuracy of the successors and fingers and the lookup failure ratio are
+ * sampled over time, and the time each change takes to converge, i.e. until
+ * all the successors, and then all the fingers, are correct again, is
+ * reported.
+ * <P>
+ * Usage: java ChordSimulation08 [<I>resultsFile</I>]
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+public class ChordSimulation08 {
+
+	private static double meanQueryProcTime = 1.0;
+	private static double meanStabilizeTime = 10.0;
+	private static int seed = 161803;
+	private static Random rand;
+	private static Simulation sim;
+	private static ChordRing ring;
+	private static int base = 2;
+	private static int hashKeyLength = 14;
+	private static int initialNodes = 500;
+	private static int scaleOutNodes = 500;
+	private static int scaleInNodes = 500;
+	private static int queries = 3000;
+	private static double scaleOutTime = 300;
+	private static double scaleInTime = 1500;
+	private static double sampleInterval = 5;
+	private static String resultsFile = "chord08.csv";
+
+	private static ExponentialPrng stabilizer;
+	private static ResultSink results;
+	private static int sampled;
+
+	// Convergence of the last change of the membership.
+	private static double changeTime;
+	private static double successorsConverged;
+	private static double fingersConverged;
+
+	public static void main(String[] args) throws IOException {
+		if (args.length > 0)
+			resultsFile = args[0];
+
+		ChordRing.verbose = false;
+		Node.verbose = false;
+
+		rand = Random.getInstance(seed);
+		sim = new Simulation();
+		ring = new ChordRing(base, hashKeyLength, initialNodes, sim, rand,
+				meanQueryProcTime);
+		stabilizer = new ExponentialPrng(rand, 1.0 / meanStabilizeTime);
+
+		List<Data> dataList = new ArrayList<Data>();
+		for (int i = 0; i < (initialNodes + scaleOutNodes) * 1.5; i++) {
+			Data data = new Data(base, hashKeyLength);
+			dataList.add(data);
+		}
+		ring.addAllData(dataList);
+		java.util.Random picker = new java.util.Random(seed);
+		for (int i = 0; i < queries; i++)
+			ring.addQuery(dataList.get(picker.nextInt(dataList.size()))
+					.hashCode());
+
+		for (Node node : ring.getNodes().values())
+			stabilize(node);
+
+		sim.doAt(scaleOutTime, new Event() {
+			public void perform() {
+				for (int i = 0; i < scaleOutNodes; i++) {
+					Node node = null;
+					while (node == null)
+						node = ring.addNode(rand.nextInt(ring.ringMaxSize()));
+					stabilize(node);
+				}
+				changed("scale-out");
+			}
+		});
+		sim.doAt(scaleInTime, new Event() {
+			public void perform() {
+				for (int i = 0; i < scaleInNodes; i++) {
+					List<Integer> keys = ring.getNodeKeys();
+					ring.removeNode(keys.get(rand.nextInt(keys.size())));
+				}
+				changed("scale-in");
+			}
+		});
+
+		results = ResultSinks.open(resultsFile, "time", "nodes",
+				"successor_accuracy", "finger_accuracy", "failure");
+		System.out.println("\t\t\t\tconvergence time");
+		System.out.println("event\t\ttime\tnodes\tsuccessors\tfingers");
+		sampled = 0;
+		changeTime = Double.NaN;
+		sample();
+
+		ring.lookup();
+		sim.run();
+		results.close();
+
+		System.out.println();
+		System.out.println("Total number of queries\t: "
+				+ ring.getSeries().length());
+		System.out.println("Lookup Success Ratio\t: "
+				+ ring.getSeries().stats().mean);
+	}
+
+	/**
+	 * Runs the stabilization procedure of the given node at intervals
+	 * exponentially distributed over the mean stabilization interval, as long
+	 * as the node is in the ring and queries are being looked up.
+	 * 
+	 * @param node
+	 *            the Node object
+	 */
+	private static void stabilize(final Node node) {
+		sim.doAfter(stabilizer.next(), new Event() {
+			public void perform() {
+				if (ring.getNodes().get(node.getId()) != node
+						|| ring.isQueueEmpty())
+					return;
+				if (node.isAlive())
+					node.start();
+				stabilize(node);
+			}
+		});
+	}
+
+	/**
+	 * Starts measuring the convergence of a change of the membership.
+	 * 
+	 * @param event
+	 *            the name of the change
+	 */
+	private static void changed(String event) {
+		report();
+		changeTime = sim.time();
+		successorsConverged = Double.NaN;
+		fingersConverged = Double.NaN;
+		System.out.printf("%s\t%.0f\t%d\t", event, changeTime, ring
+				.getNodes().size());
+	}
+
+	/**
+	 * Prints the convergence time of the last change of the membership.
+	 */
+	private static void report() {
+		if (!Double.isNaN(changeTime))
+			System.out.printf("%.1f\t\t%.1f\n", successorsConverged
+					- changeTime, fingersConverged - changeTime);
+	}
+
+	/**
+	 * Samples the accuracy of the ring and the lookups finished since the
+	 * last sample and schedules the next sample, until all the queries are
+	 * looked up.
+	 */
+	private static void sample() {
+		ListSeries series = ring.getSeries();
+		int failures = 0;
+		for (int i = sampled; i < series.length(); i++)
+			if (series.x(i) == 0)
+				failures++;
+		int finished = series.length() - sampled;
+		sampled = series.length();
+		double successors = ring.successorAccuracy();
+		double fingers = ring.fingerAccuracy();
+		results.write(sim.time(), ring.getNodes().size(), successors,
+				fingers, finished == 0 ? Double.NaN : failures
+						/ (double) finished);
+		if (Double.isNaN(successorsConverged) && successors == 1)
+			successorsConverged = sim.time();
+		if (Double.isNaN(fingersConverged) && fingers == 1)
+			fingersConverged = sim.time();
+		if (!ring.isQueueEmpty()) {
+			sim.doAfter(sampleInterval, new Event() {
+				public void perform() {
+					sample();
+				}
+			});
+		} else {
+			report();
+		}
+	}
+}
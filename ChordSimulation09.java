@@ -0,0 +1,164 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import edu.rit.sim.Simulation;
+import edu.rit.util.Random;
+
+/**
+ * Class ChordSimulation09 measures how virtual nodes balance the load of a
+ * Chord ring. For an increasing number of virtual nodes per physical host, it
+ * stores data items and looks up queries on a ring with a fixed number of
+ * hosts, and reports the max/mean imbalance of the key load and of the query
+ * load over the hosts, along with the routing table entries kept per host.
+ * <P>
+ * The same lookups are then run again while hosts churn, every host taking
+ * all its virtual nodes down or up at once, and it reports the mean and the
+ * max/mean imbalance of the failures per host, the max/mean key load over
+ * the hosts still up once the data of the failed ones was handed off, and
+ * the success ratio under churn.
+ * <P>
+ * Usage: java ChordSimulation09 [<I>resultsFile</I>]
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+public class ChordSimulation09 {
+
+	private static double meanQueryProcTime = 1.0;
+	private static double meanChurnRate = 5.0;
+	private static double meanStabilizeTime = 0.5;
+	private static int seed = 141421;
+	private static Random rand;
+	private static Simulation sim;
+	private static ChordRing ring;
+	private static int base = 2;
+	private static int hashKeyLength = 20;
+	private static int hosts = 500;
+	private static int maxVirtualNodes = 64;
+	private static int dataPerHost = 20;
+	private static int queries = 5000;
+	private static String resultsFile = "chord09.csv";
+
+	public static void main(String[] args) throws IOException {
+		if (args.length > 0)
+			resultsFile = args[0];
+
+		ChordRing.verbose = false;
+		Node.verbose = false;
+
+		ResultSink results = ResultSinks.open(resultsFile, "virtual_nodes",
+				"key_imbalance", "query_imbalance", "routing_entries",
+				"mean_hops", "success", "failures_per_host",
+				"failure_imbalance", "churn_key_imbalance", "success_churn");
+
+		System.out.println("v\tkey max/mean\tquery max/mean\trouting entries"
+				+ "\thops\tsuccess\tfailures\tfailure max/mean"
+				+ "\tkey max/mean churn\tsuccess churn");
+		List<Data> dataList = new ArrayList<Data>();
+		for (int i = 0; i < hosts * dataPerHost; i++)
+			dataList.add(new Data(base, hashKeyLength));
+		// Distinct queries, as a node fails a lookup for the key it has just
+		// looked up.
+		List<Integer> keys = new ArrayList<Integer>();
+		for (Data data : dataList)
+			keys.add(data.hashCode());
+		keys = new ArrayList<Integer>(new LinkedHashSet<Integer>(keys));
+		Collections.shuffle(keys, new java.util.Random(seed));
+		keys = keys.subList(0, Math.min(queries, keys.size()));
+
+		for (int v = 1; v <= maxVirtualNodes; v *= 2) {
+			run(v, dataList, keys, false);
+			List<Host> all = ring.getHosts();
+			double[] keyLoad = new double[all.size()];
+			double[] queryLoad = new double[all.size()];
+			for (int i = 0; i < all.size(); i++) {
+				keyLoad[i] = all.get(i).getKeyLoad();
+				queryLoad[i] = all.get(i).getQueryLoad();
+			}
+			double keyImbalance = imbalance(keyLoad);
+			double queryImbalance = imbalance(queryLoad);
+			int entries = all.get(0).getRoutingEntries();
+			double meanHops = ring.getHopSeries().stats().mean;
+			double success = ring.getSeries().stats().mean;
+
+			run(v, dataList, keys, true);
+			all = ring.getHosts();
+			double[] failures = new double[all.size()];
+			double totalFailures = 0;
+			List<Double> upLoad = new ArrayList<Double>();
+			for (int i = 0; i < all.size(); i++) {
+				failures[i] = all.get(i).getFailures();
+				totalFailures += failures[i];
+				if (all.get(i).isAlive())
+					upLoad.add((double) all.get(i).getKeyLoad());
+			}
+			double[] churnKeyLoad = new double[upLoad.size()];
+			for (int i = 0; i < churnKeyLoad.length; i++)
+				churnKeyLoad[i] = upLoad.get(i);
+			double failuresPerHost = totalFailures / all.size();
+			double failureImbalance = imbalance(failures);
+			double churnKeyImbalance = imbalance(churnKeyLoad);
+			double successChurn = ring.getSeries().stats().mean;
+
+			System.out.printf("%d\t%.3f\t\t%.3f\t\t%d\t\t%.2f\t%.3f\t"
+					+ "%.3f\t\t%.3f\t\t\t%.3f\t\t\t%.3f\n", v,
+					keyImbalance, queryImbalance, entries, meanHops, success,
+					failuresPerHost, failureImbalance, churnKeyImbalance,
+					successChurn);
+			results.write(v, keyImbalance, queryImbalance, entries,
+					meanHops, success, failuresPerHost, failureImbalance,
+					churnKeyImbalance, successChurn);
+			results.flush();
+		}
+		results.close();
+	}
+
+	/**
+	 * Looks up the given keys on a new ring of hosts running the given number
+	 * of virtual nodes each and storing the given data.
+	 * 
+	 * @param v
+	 *            the number of virtual nodes per host
+	 * @param dataList
+	 *            the data stored on the ring
+	 * @param keys
+	 *            the keys looked up
+	 * @param churn
+	 *            true if the hosts churn during the lookups
+	 */
+	private static void run(int v, List<Data> dataList, List<Integer> keys,
+			boolean churn) {
+		rand = Random.getInstance(seed);
+		sim = new Simulation();
+		ring = new ChordRing(base, hashKeyLength, hosts, v, sim, rand,
+				meanQueryProcTime);
+		ring.addAllData(dataList);
+		for (int key : keys)
+			ring.addQuery(key);
+		if (churn)
+			new Churner(sim, rand, meanChurnRate, ring, meanStabilizeTime,
+					true);
+		ring.lookup();
+		sim.run();
+	}
+
+	/**
+	 * Returns the ratio of the maximum to the mean of the given loads.
+	 * 
+	 * @param load
+	 *            the load of every host
+	 * @return the max/mean ratio, 1 for a perfectly balanced load
+	 */
+	private static double imbalance(double[] load) {
+		double max = 0;
+		double sum = 0;
+		for (double x : load) {
+			max = Math.max(max, x);
+			sum += x;
+		}
+		return sum == 0 ? 1 : max / (sum / load.length);
+	}
+}
@@ -0,0 +1,150 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import edu.rit.numeric.ExponentialPrng;
+import edu.rit.sim.Simulation;
+import edu.rit.util.Random;
+
+/**
+ * Class ChordSimulation10 simulates range scans of a Chord ring. For intervals
+ * covering a growing fraction of the ring, starting either mid-ring or just
+ * before zero so they wrap around, and for several prefetch windows, it scans
+ * the interval once on an intact ring and once with a fraction of the nodes
+ * dead. It reports the items expected and streamed, the nodes visited and
+ * skipped, how often the consumer held the fetches back, and the scan
+ * throughput in items per simulated second.
+ * <P>
+ * Usage: java ChordSimulation10 [<I>resultsFile</I>]
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+public class ChordSimulation10 {
+
+	private static double meanQueryProcTime = 1.0;
+	private static double meanMessageDelay = 0.05;
+	private static double meanConsumeTime = 0.002;
+	private static int seed = 173205;
+	private static Random rand;
+	private static Simulation sim;
+	private static ChordRing ring;
+	private static int base = 2;
+	private static int hashKeyLength = 16;
+	private static int initialNodes = 1000;
+	private static int dataItems = 50000;
+	private static double deadFraction = 0.1;
+	private static String resultsFile = "chord10.csv";
+
+	public static void main(String[] args) throws IOException {
+		if (args.length > 0)
+			resultsFile = args[0];
+
+		ChordRing.verbose = false;
+		Node.verbose = false;
+
+		List<Data> dataList = new ArrayList<Data>();
+		Set<Integer> keys = new HashSet<Integer>();
+		for (int i = 0; i < dataItems; i++) {
+			Data data = new Data(base, hashKeyLength);
+			dataList.add(data);
+			keys.add(data.hashCode());
+		}
+
+		ResultSink results = ResultSinks.open(resultsFile, "wrap",
+				"fraction", "window", "dead", "expected", "items", "nodes",
+				"skipped", "stalls", "duration", "throughput");
+		System.out.println("wrap\tfraction\twindow\tdead\texpected\titems\t"
+				+ "nodes\tskipped\tstalls\tduration\titems/s");
+
+		double[] fractions = { 0.01, 0.05, 0.2 };
+		int[] windows = { 1, 2, 4, 8 };
+		for (int wrap = 0; wrap <= 1; wrap++) {
+			for (double fraction : fractions) {
+				for (int window : windows) {
+					for (int dead = 0; dead <= 1; dead++) {
+						rand = Random.getInstance(seed);
+						sim = new Simulation();
+						ring = new ChordRing(base, hashKeyLength,
+								initialNodes, sim, rand, meanQueryProcTime);
+						ring.addAllData(dataList);
+						if (dead == 1)
+							new FailureInjector(ring, rand)
+									.failFraction(deadFraction);
+
+						int maxSize = ring.ringMaxSize();
+						int length = (int) (fraction * maxSize);
+						int from = wrap == 1 ? maxSize - length / 2
+								: maxSize / 2;
+						int to = (from + length) % maxSize;
+						int expected = 0;
+						for (int key : keys)
+							if ((key - from + maxSize) % maxSize < length)
+								expected++;
+
+						Node origin;
+						do {
+							List<Integer> nodeKeys = ring.getNodeKeys();
+							origin = ring.getNodes().get(
+									nodeKeys.get(rand.nextInt(nodeKeys
+											.size())));
+						} while (!origin.isAlive());
+
+						OrderChecker checker = new OrderChecker(from, maxSize);
+						RangeScan scan = new RangeScan(ring, sim,
+								new ExponentialPrng(rand,
+										1.0 / meanMessageDelay),
+								new ExponentialPrng(rand,
+										1.0 / meanConsumeTime), window,
+								checker);
+						scan.start(origin, from, to);
+						sim.run();
+
+						if (!checker.ordered)
+							System.err.println("Items out of order");
+						System.out.printf("%d\t%.2f\t\t%d\t%d\t%d\t\t%d\t%d\t"
+								+ "%d\t%d\t%.1f\t\t%.0f\n", wrap, fraction,
+								window, dead, expected, scan.getItems(),
+								scan.getNodes(), scan.getSkipped(),
+								scan.getStalls(), scan.getDuration(),
+								scan.getThroughput());
+						results.write(wrap, fraction, window, dead, expected,
+								scan.getItems(), scan.getNodes(),
+								scan.getSkipped(), scan.getStalls(),
+								scan.getDuration(), scan.getThroughput());
+						results.flush();
+					}
+				}
+			}
+		}
+		results.close();
+	}
+
+	/**
+	 * Class OrderChecker consumes the items of a range scan, checking that
+	 * they arrive in hash key order from the start of the interval.
+	 */
+	private static class OrderChecker implements RangeConsumer {
+		private int from;
+		private int maxSize;
+		private int last = -1;
+		boolean ordered = true;
+
+		OrderChecker(int from, int maxSize) {
+			this.from = from;
+			this.maxSize = maxSize;
+		}
+
+		public void accept(Data data) {
+			int distance = (data.hashCode() - from + maxSize) % maxSize;
+			if (distance < last)
+				ordered = false;
+			last = distance;
+		}
+
+		public void done(RangeScan scan) {
+		}
+	}
+}
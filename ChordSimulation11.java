@@ -0,0 +1,237 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import edu.rit.sim.Simulation;
+import edu.rit.util.Random;
+
+/**
+ * Class ChordSimulation11 measures how Bloom filter summaries of the data keys
+ * of every node shorten the lookups of absent keys in a Chord ring. For
+ * increasing filter sizes, starting with no filters at all, it looks up keys
+ * nobody stores and keys that are stored, and reports the false positive rate
+ * of the filters, their memory per node, the memory of the copies of the
+ * filters of its successor and fingers a node keeps, the mean hops of both
+ * kinds of lookups and the hops saved on absent keys compared to no filters.
+ * <P>
+ * The copies are only refreshed when a node stabilizes. To show what a stale
+ * copy costs, nodes then join and leave the ring, and every node is asked
+ * whether each key whose data moved is known to be absent; the fraction of
+ * the nodes wrongly answering yes is reported as the stale false negative
+ * rate. A copy only rules out keys between the predecessor reported with it
+ * and its node, and a join or leave only moves data out of such a range or
+ * into a range no copy was taken for, so the rate measured is 0: a stale
+ * copy costs hops, not lookups.
+ * <P>
+ * Usage: java ChordSimulation11 [<I>resultsFile</I>]
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+public class ChordSimulation11 {
+
+	private static double meanQueryProcTime = 1.0;
+	private static int seed = 223606;
+	private static Random rand;
+	private static Simulation sim;
+	private static ChordRing ring;
+	private static int base = 2;
+	private static int hashKeyLength = 20;
+	private static int initialNodes = 1000;
+	private static int dataItems = 20000;
+	private static int queries = 2000;
+	private static int churn = 50;
+	private static int[] filterBits = { 0, 64, 128, 256, 512, 1024 };
+	private static String resultsFile = "chord11.csv";
+
+	public static void main(String[] args) throws IOException {
+		if (args.length > 0)
+			resultsFile = args[0];
+
+		ChordRing.verbose = false;
+		Node.verbose = false;
+
+		int maxSize = (int) Math.pow(base, hashKeyLength);
+		List<Data> dataList = new ArrayList<Data>();
+		Set<Integer> stored = new HashSet<Integer>();
+		for (int i = 0; i < dataItems; i++) {
+			Data data = new Data(base, hashKeyLength);
+			dataList.add(data);
+			stored.add(data.hashCode());
+		}
+		java.util.Random picker = new java.util.Random(seed);
+		Set<Integer> present = new HashSet<Integer>();
+		Set<Integer> absent = new HashSet<Integer>();
+		while (present.size() < queries)
+			present.add(dataList.get(picker.nextInt(dataList.size()))
+					.hashCode());
+		while (absent.size() < queries) {
+			int key = picker.nextInt(maxSize);
+			if (!stored.contains(key))
+				absent.add(key);
+		}
+
+		ResultSink results = ResultSinks.open(resultsFile, "bits",
+				"hashes", "bytes_per_node", "summary_bytes_per_node",
+				"false_positive_rate", "hops_absent", "hops_present",
+				"hops_saved", "success", "stale_false_negative_rate");
+		System.out.println("bits\thashes\tbytes\tsummary\tFPR\t"
+				+ "hops absent\thops present\thops saved\tsuccess\tstale FNR");
+
+		double baseline = Double.NaN;
+		for (int bits : filterBits) {
+			// Optimal number of hashes for the mean keys per node.
+			int hashes = Math.max(1, (int) Math.round(bits * Math.log(2)
+					* initialNodes / dataItems));
+			Node.bloomBits = bits;
+			Node.bloomHashes = hashes;
+
+			double hopsAbsent = run(dataList, absent);
+			double falsePositives = falsePositiveRate(picker);
+			int bytes = bits == 0 ? 0 : ring.getNodes().firstEntry()
+					.getValue().getBloomFilter().sizeBytes();
+			double hopsPresent = run(dataList, present);
+			double success = ring.getSeries().stats().mean;
+			double summaryBytes = summaryBytes();
+			double falseNegatives = staleFalseNegativeRate(dataList, picker);
+			if (bits == 0)
+				baseline = hopsAbsent;
+
+			System.out.printf("%d\t%d\t%d\t%.0f\t%.4f\t%.2f\t\t%.2f\t\t"
+					+ "%.2f\t\t%.3f\t%.4f\n", bits, hashes, bytes,
+					summaryBytes, falsePositives, hopsAbsent, hopsPresent,
+					baseline - hopsAbsent, success, falseNegatives);
+			results.write(bits, hashes, bytes, summaryBytes, falsePositives,
+					hopsAbsent, hopsPresent, baseline - hopsAbsent, success,
+					falseNegatives);
+			results.flush();
+		}
+		Node.bloomBits = 0;
+		results.close();
+	}
+
+	/**
+	 * Looks up the given keys on a new ring storing the given data.
+	 * 
+	 * @param dataList
+	 *            the data stored on the ring
+	 * @param keys
+	 *            the keys looked up
+	 * @return the mean hops of the lookups
+	 */
+	private static double run(List<Data> dataList, Set<Integer> keys) {
+		rand = Random.getInstance(seed);
+		sim = new Simulation();
+		ring = new ChordRing(base, hashKeyLength, initialNodes, sim, rand,
+				meanQueryProcTime);
+		ring.addAllData(dataList);
+		// A round of stabilization, on which the nodes learn the Bloom
+		// filters of their successors and fingers.
+		for (Node node : ring.getNodes().values())
+			node.start();
+		for (int key : keys)
+			ring.addQuery(key);
+		ring.lookup();
+		sim.run();
+		return ring.getHopSeries().stats().mean;
+	}
+
+	/**
+	 * Returns the fraction of probes of the Bloom filters with keys the
+	 * probed node does not store that answer the key might be stored.
+	 * 
+	 * @param picker
+	 *            the random generator of the probed keys
+	 * @return the false positive rate, 0 if the nodes keep no filters
+	 */
+	private static double falsePositiveRate(java.util.Random picker) {
+		long probes = 0;
+		long positives = 0;
+		for (Node node : ring.getNodes().values()) {
+			if (node.getBloomFilter() == null)
+				return 0;
+			for (int i = 0; i < 100; i++) {
+				int key = picker.nextInt(ring.ringMaxSize());
+				if (node.hasData(key))
+					continue;
+				probes++;
+				if (node.mightHaveData(key))
+					positives++;
+			}
+		}
+		return probes == 0 ? 0 : positives / (double) probes;
+	}
+
+	/**
+	 * Returns the mean memory the nodes spend on the copies of the Bloom
+	 * filters of their successors and fingers.
+	 * 
+	 * @return the mean number of bytes per node
+	 */
+	private static double summaryBytes() {
+		long bytes = 0;
+		for (Node node : ring.getNodes().values())
+			bytes += node.getSummaryBytes();
+		return bytes / (double) ring.getNodes().size();
+	}
+
+	/**
+	 * Lets nodes join and leave the ring without stabilizing it, and returns
+	 * the fraction of the nodes not storing a key whose data moved that
+	 * wrongly claim the key is known to be absent.
+	 * 
+	 * @param dataList
+	 *            the data stored on the ring
+	 * @param picker
+	 *            the random generator of the joining and leaving nodes
+	 * @return the stale false negative rate, 0 if the nodes keep no filters
+	 */
+	private static double staleFalseNegativeRate(List<Data> dataList,
+			java.util.Random picker) {
+		if (Node.bloomBits == 0)
+			return 0;
+		Map<Integer, Node> before = new HashMap<Integer, Node>();
+		for (Data data : dataList)
+			before.put(data.hashCode(), holder(data.hashCode()));
+		for (int i = 0; i < churn; i++) {
+			List<Integer> keys = ring.getNodeKeys();
+			ring.removeNode(keys.get(picker.nextInt(keys.size())));
+			while (ring.addNode(picker.nextInt(ring.ringMaxSize())) == null)
+				;
+		}
+
+		long probes = 0;
+		long negatives = 0;
+		for (Map.Entry<Integer, Node> entry : before.entrySet()) {
+			int key = entry.getKey();
+			if (holder(key) == entry.getValue())
+				continue;
+			for (Node node : ring.getNodes().values()) {
+				if (node.hasData(key))
+					continue;
+				probes++;
+				if (node.knownAbsent(key))
+					negatives++;
+			}
+		}
+		return probes == 0 ? 0 : negatives / (double) probes;
+	}
+
+	/**
+	 * Returns the node responsible for the given hash key.
+	 * 
+	 * @param key
+	 *            the hash key
+	 * @return the Node object
+	 */
+	private static Node holder(int key) {
+		Map.Entry<Integer, Node> entry = ring.getNodes().ceilingEntry(key);
+		if (entry == null)
+			entry = ring.getNodes().firstEntry();
+		return entry.getValue();
+	}
+}
@@ -0,0 +1,155 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import edu.rit.sim.Event;
+import edu.rit.sim.Simulation;
+import edu.rit.util.Random;
+
+/**
+ * Class ChordSimulation12 compares a fixed stabilization interval with one
+ * adapted by a StabilizationController. The churn of the ring goes through
+ * phases of low and high churn while lookups are issued, and every node runs
+ * the stabilization procedure periodically. For both a fixed interval and an
+ * adaptive one, it reports over time the observed churn rate, the chosen
+ * interval and the lookup failure ratio, and in the end the overall failure
+ * ratio and the number of stabilizations run, averaged over a few trials as
+ * the hosts churn at random.
+ * <P>
+ * The queries are distinct and the key space is much larger than the ring,
+ * so that a failed lookup comes from stale routing state or lost data, and
+ * not from a node looking up the key it has just looked up. Most failures are
+ * still lookups for data a node handed off to a successor that had already
+ * left, which no stabilization repairs, so the failure ratio hardly improves
+ * with fixed intervals under 1. The adaptive interval saves stabilizations
+ * at about the failure ratio of the fixed one, rather than lowering it.
+ * <P>
+ * Usage: java ChordSimulation12 [<I>resultsFile</I>]
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+public class ChordSimulation12 {
+
+	private static double meanQueryProcTime = 1.0;
+	private static int seed = 244948;
+	private static Random rand;
+	private static Simulation sim;
+	private static ChordRing ring;
+	private static Churner churner;
+	private static int base = 2;
+	private static int hashKeyLength = 16;
+	private static int initialNodes = 1000;
+	private static int queries = 1500;
+	private static double fixedInterval = 0.5;
+	private static double minInterval = 0.25;
+	private static double maxInterval = 5.0;
+	private static double targetFailure = 0.2;
+	private static double window = 100;
+	private static double period = 10;
+	private static double phaseLength = 300;
+	private static double[] phaseChurn = { 2.0, 0.2, 1.0, 0.1, 2.0 };
+	private static int trials = 4;
+	private static String resultsFile = "chord12.csv";
+
+	public static void main(String[] args) throws IOException {
+		if (args.length > 0)
+			resultsFile = args[0];
+
+		ChordRing.verbose = false;
+		Node.verbose = false;
+
+		List<Data> dataList = new ArrayList<Data>();
+		for (int i = 0; i < queries * 2; i++)
+			dataList.add(new Data(base, hashKeyLength));
+		// Distinct queries, as a node fails a lookup for the key it has just
+		// looked up.
+		Set<Integer> distinct = new LinkedHashSet<Integer>();
+		for (Data data : dataList)
+			distinct.add(data.hashCode());
+		List<Integer> queryKeys = new ArrayList<Integer>(distinct);
+		Collections.shuffle(queryKeys, new java.util.Random(seed));
+		queryKeys = queryKeys.subList(0, Math.min(queries, queryKeys.size()));
+
+		ResultSink results = ResultSinks.open(resultsFile, "adaptive",
+				"trial", "time", "churn_rate", "interval", "failure_ratio");
+		System.out.println("adaptive\tfailure\tstabilizations\tmean interval");
+
+		for (int adaptive = 0; adaptive <= 1; adaptive++) {
+			double failure = 0;
+			double stabilizations = 0;
+			double meanInterval = 0;
+			for (int trial = 0; trial < trials; trial++) {
+				StabilizationController controller = run(dataList,
+						queryKeys, adaptive == 1, seed + trial);
+				failure += (1 - ring.getSeries().stats().mean) / trials;
+				stabilizations += churner.getStabilizations()
+						/ (double) trials;
+				meanInterval += controller.getIntervals().stats().mean
+						/ trials;
+				for (int i = 0; i < controller.getTimes().length(); i++) {
+					results.write(adaptive, trial, controller.getTimes().x(i),
+							controller.getChurnRates().x(i), controller
+									.getIntervals().x(i), controller
+									.getFailureRatios().x(i));
+				}
+				results.flush();
+			}
+			System.out.printf("%d\t\t%.3f\t%.0f\t\t%.2f\n", adaptive,
+					failure, stabilizations, meanInterval);
+		}
+		results.close();
+	}
+
+	/**
+	 * Looks up the given queries on a new ring storing the given data, while
+	 * the hosts churn through the phases and the nodes stabilize
+	 * periodically.
+	 * 
+	 * @param dataList
+	 *            the data stored on the ring
+	 * @param queryKeys
+	 *            the hash keys looked up
+	 * @param adaptive
+	 *            true to adapt the stabilization interval, false to keep it
+	 *            fixed
+	 * @param trialSeed
+	 *            the seed of the trial
+	 * @return the StabilizationController object of the run
+	 */
+	private static StabilizationController run(List<Data> dataList,
+			List<Integer> queryKeys, boolean adaptive, long trialSeed) {
+		rand = Random.getInstance(trialSeed);
+		sim = new Simulation();
+		ring = new ChordRing(base, hashKeyLength, initialNodes, sim, rand,
+				meanQueryProcTime);
+		ring.addAllData(dataList);
+		for (int key : queryKeys)
+			ring.addQuery(key);
+
+		StabilizationController controller = adaptive
+				? new StabilizationController(sim, ring, rand, minInterval,
+						maxInterval, targetFailure, window, period)
+				: new StabilizationController(sim, ring, rand,
+						fixedInterval, fixedInterval, targetFailure,
+						window, period);
+		churner = new Churner(sim, rand, phaseChurn[0], ring, controller);
+		for (int i = 1; i < phaseChurn.length; i++) {
+			final double churn = phaseChurn[i];
+			sim.doAfter(i * phaseLength, new Event() {
+
+				@Override
+				public void perform() {
+					churner.setMeanChurnRate(churn);
+				}
+			});
+		}
+
+		ring.lookup();
+		sim.run();
+		return controller;
+	}
+}
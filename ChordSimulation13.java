@@ -0,0 +1,154 @@
+import java.io.IOException;
+
+import edu.rit.sim.Simulation;
+import edu.rit.util.Random;
+
+/**
+ * Class ChordSimulation13 measures the memory and routing of the compact,
+ * array-based model of a Chord ring for rings of growing size, up to millions
+ * of nodes with 32-bit hash keys. For every size it reports the routing state
+ * per node, both as sized from the arrays and as measured on the heap, the
+ * time to build the ring, and the mean hops and success ratio of random
+ * lookups: on the intact ring, right after a fraction of the nodes failed, and
+ * after the ring was repaired. For the smaller sizes the heap taken per node
+ * by the object-based ChordRing is measured alongside.
+ * <P>
+ * Usage: java ChordSimulation13 [<I>resultsFile</I> [<I>maxNodes</I>]]
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+public class ChordSimulation13 {
+
+	private static int seed = 264575;
+	private static int hashKeyLength = 32;
+	private static int objectHashKeyLength = 20;
+	private static int maxObjectNodes = 10000;
+	private static int maxNodes = 1000000;
+	private static int lookups = 100000;
+	private static double deadFraction = 0.1;
+	private static String resultsFile = "chord13.csv";
+
+	/**
+	 * Keeps the ring being measured reachable while the heap is measured.
+	 */
+	private static Object held;
+
+	public static void main(String[] args) throws IOException {
+		if (args.length > 0)
+			resultsFile = args[0];
+		if (args.length > 1)
+			maxNodes = Integer.parseInt(args[1]);
+
+		ChordRing.verbose = false;
+		Node.verbose = false;
+
+		ResultSink results = ResultSinks.open(resultsFile, "nodes",
+				"bytes_per_node", "heap_per_node", "object_heap_per_node",
+				"build_millis", "mean_hops", "success", "success_dead",
+				"success_repaired");
+		System.out.println("nodes\t\tbytes/node\theap/node\tobject heap/node"
+				+ "\tbuild ms\thops\tsuccess\tdead\trepaired");
+
+		for (int nodes = 1000; nodes <= maxNodes; nodes *= 10) {
+			Random rand = Random.getInstance(seed);
+
+			long before = usedHeap();
+			long start = System.currentTimeMillis();
+			CompactRing ring = new CompactRing(hashKeyLength, nodes, rand);
+			long buildMillis = System.currentTimeMillis() - start;
+			held = ring;
+			double heapPerNode = (usedHeap() - before) / (double) nodes;
+
+			double objectHeapPerNode = Double.NaN;
+			if (nodes <= maxObjectNodes) {
+				held = null;
+				before = usedHeap();
+				held = new ChordRing(2, objectHashKeyLength, nodes,
+						new Simulation(), Random.getInstance(seed), 1.0);
+				objectHeapPerNode = (usedHeap() - before) / (double) nodes;
+				held = ring;
+			}
+
+			long hops = 0;
+			double success = route(ring, rand, lookups, true);
+			for (int i = 0; i < lookups; i++) {
+				ring.lookup(rand.nextInt(nodes), randomKey(rand));
+				hops += ring.getHops();
+			}
+			double meanHops = hops / (double) lookups;
+
+			for (int s = 0; s < nodes; s++) {
+				if (rand.nextDouble() < deadFraction)
+					ring.fail(s);
+			}
+			double successDead = route(ring, rand, lookups, false);
+			ring.repair();
+			double successRepaired = route(ring, rand, lookups, false);
+
+			System.out.printf("%-8d\t%.1f\t\t%.1f\t\t%.1f\t\t\t%d\t\t%.2f\t"
+					+ "%.3f\t%.3f\t%.3f\n", nodes, ring.bytesPerNode(),
+					heapPerNode, objectHeapPerNode, buildMillis, meanHops,
+					success, successDead, successRepaired);
+			results.write(nodes, ring.bytesPerNode(), heapPerNode,
+					objectHeapPerNode, buildMillis, meanHops, success,
+					successDead, successRepaired);
+			results.flush();
+			held = null;
+		}
+		results.close();
+	}
+
+	/**
+	 * Looks up random hash keys from random active nodes and returns the
+	 * fraction of the lookups that found the node responsible for the key.
+	 * 
+	 * @param ring
+	 *            the CompactRing object
+	 * @param rand
+	 *            the Random object
+	 * @param count
+	 *            the number of lookups
+	 * @param intact
+	 *            true if all the nodes are active
+	 * @return the success ratio
+	 */
+	private static double route(CompactRing ring, Random rand, int count,
+			boolean intact) {
+		int found = 0;
+		for (int i = 0; i < count; i++) {
+			int start;
+			do {
+				start = rand.nextInt(ring.size());
+			} while (!intact && !ring.isAlive(start));
+			int key = randomKey(rand);
+			int owner = ring.lookup(start, key);
+			if (owner >= 0 && owner == ring.owner(key))
+				found++;
+		}
+		return found / (double) count;
+	}
+
+	/**
+	 * Returns a random hash key, spread over the whole unsigned range.
+	 * 
+	 * @param rand
+	 *            the Random object
+	 * @return the hash key
+	 */
+	private static int randomKey(Random rand) {
+		return (int) (long) (rand.nextDouble() * (1L << hashKeyLength));
+	}
+
+	/**
+	 * Returns the heap in use after a few garbage collections.
+	 * 
+	 * @return the number of bytes in use
+	 */
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 4; i++)
+			System.gc();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,114 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import edu.rit.sim.Simulation;
+import edu.rit.util.Random;
+
+/**
+ * Class ChordSimulation14 compares Chord routing with Koorde routing on the
+ * same rings, workloads and churn. For rings of growing size it runs the same
+ * lookups once on a stable ring and once while nodes churn and stabilize, under
+ * either routing strategy, Koorde with a degree of about log N and as many
+ * successors, so both keep O(log N) state per node. It reports the
+ * routing table entries per node, the mean hops of the lookups and their
+ * success ratio with and without churn.
+ * <P>
+ * Usage: java ChordSimulation14 [<I>resultsFile</I>]
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+public class ChordSimulation14 {
+
+	private static double meanQueryProcTime = 1.0;
+	private static double meanChurnRate = 1.0;
+	private static double meanStabilizeTime = 0.5;
+	private static int seed = 282842;
+	private static Random rand;
+	private static Simulation sim;
+	private static ChordRing ring;
+	private static int base = 2;
+	private static int hashKeyLength = 20;
+	private static int[] ringSizes = { 256, 1024, 4096, 16384 };
+	private static int queries = 1000;
+	private static String resultsFile = "chord14.csv";
+
+	public static void main(String[] args) throws IOException {
+		if (args.length > 0)
+			resultsFile = args[0];
+
+		ChordRing.verbose = false;
+		Node.verbose = false;
+
+		ResultSink results = ResultSinks.open(resultsFile, "nodes",
+				"koorde", "degree", "entries_per_node", "mean_hops", "success",
+				"success_churn");
+		System.out.println("nodes\trouting\tdegree\tentries\thops\tsuccess\t"
+				+ "success with churn");
+
+		for (int nodes : ringSizes) {
+			List<Data> dataList = new ArrayList<Data>();
+			for (int i = 0; i < nodes * 2; i++)
+				dataList.add(new Data(base, hashKeyLength));
+			List<Data> queryList = new ArrayList<Data>(dataList);
+			Collections.shuffle(queryList, new java.util.Random(seed));
+			queryList = queryList.subList(0, Math.min(queries, nodes));
+
+			int logN = 31 - Integer.numberOfLeadingZeros(nodes);
+			int degree = Integer.highestOneBit(logN - 1) << 1;
+			for (int koorde = 0; koorde <= 1; koorde++) {
+				RoutingStrategy routing = koorde == 1 ? new KoordeRouting(
+						degree, degree) : new ChordRouting();
+
+				run(nodes, routing, dataList, queryList, false);
+				double hops = ring.getHopSeries().stats().mean;
+				double success = ring.getSeries().stats().mean;
+				double entries = ring.getNodes().firstEntry().getValue()
+						.getFingerTable().size() + 2;
+				run(nodes, routing, dataList, queryList, true);
+				double successChurn = ring.getSeries().stats().mean;
+
+				System.out.printf("%d\t%s\t%s\t%.0f\t%.2f\t%.3f\t%.3f\n",
+						nodes, koorde == 1 ? "koorde" : "chord",
+						koorde == 1 ? String.valueOf(degree) : "-", entries,
+						hops, success, successChurn);
+				results.write(nodes, koorde, koorde == 1 ? degree : 0,
+						entries, hops, success, successChurn);
+				results.flush();
+			}
+		}
+		results.close();
+	}
+
+	/**
+	 * Looks up the given queries on a new ring storing the given data.
+	 * 
+	 * @param nodes
+	 *            the number of nodes
+	 * @param routing
+	 *            the routing of the nodes
+	 * @param dataList
+	 *            the data stored on the ring
+	 * @param queryList
+	 *            the data looked up
+	 * @param churn
+	 *            true if the nodes churn during the lookups
+	 */
+	private static void run(int nodes, RoutingStrategy routing,
+			List<Data> dataList, List<Data> queryList, boolean churn) {
+		rand = Random.getInstance(seed);
+		sim = new Simulation();
+		ring = new ChordRing(base, hashKeyLength, nodes, 1, sim, rand,
+				meanQueryProcTime, routing);
+		ring.addAllData(dataList);
+		for (Data data : queryList)
+			ring.addQuery(data.hashCode());
+		if (churn)
+			new Churner(sim, rand, meanChurnRate, ring, meanStabilizeTime,
+					true);
+		ring.lookup();
+		sim.run();
+	}
+}
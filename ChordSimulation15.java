@@ -0,0 +1,164 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import edu.rit.numeric.ListSeries;
+import edu.rit.sim.Simulation;
+import edu.rit.util.Random;
+
+/**
+ * Class ChordSimulation15 compares a flat Chord ring with a hierarchical Canon
+ * ring on hosts sitting in racks and zones, where a hop between zones costs
+ * much more than a hop between racks of a zone, which costs more than a hop
+ * within a rack. For rings of growing size it runs the same lookups from
+ * random nodes under either routing. It reports the distinct routing entries
+ * per node, and the mean hops, intra- and inter-domain hops and latency of the
+ * lookups, of all of them and of those for keys owned in the rack and in the
+ * zone of the origin. It also reports the fraction of the rack- and zone-local
+ * lookups that left the rack or the zone.
+ * <P>
+ * Usage: java ChordSimulation15 [<I>resultsFile</I>]
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+public class ChordSimulation15 {
+
+	private static double meanQueryProcTime = 0.1;
+	private static int seed = 316227;
+	private static Random rand;
+	private static Simulation sim;
+	private static ChordRing ring;
+	private static int base = 2;
+	private static int hashKeyLength = 20;
+	private static int[] ringSizes = { 256, 1024, 4096 };
+	private static int[] fanouts = { 4, 4 };
+	private static double[] latencies = { 20.0, 4.0, 0.5 };
+	private static int queries = 4000;
+	private static String resultsFile = "chord15.csv";
+
+	public static void main(String[] args) throws IOException {
+		if (args.length > 0)
+			resultsFile = args[0];
+
+		ChordRing.verbose = false;
+		Node.verbose = false;
+
+		DomainTree domains = new DomainTree(fanouts, latencies);
+		int rack = domains.levels();
+		int zone = 1;
+
+		ResultSink results = ResultSinks.open(resultsFile, "nodes", "canon",
+				"entries_per_node", "mean_hops", "intra_hops", "inter_hops",
+				"latency", "rack_hops", "rack_inter_hops", "rack_latency",
+				"rack_leaks", "zone_hops", "zone_inter_hops", "zone_latency",
+				"zone_leaks", "success");
+		System.out.println("nodes\trouting\tentries\thops\tintra\tinter\t"
+				+ "latency\track hops/inter/latency/leaks\t"
+				+ "zone hops/inter/latency/leaks\tsuccess");
+
+		for (int nodes : ringSizes) {
+			List<Data> dataList = new ArrayList<Data>();
+			for (int i = 0; i < Math.max(nodes * 2, queries); i++)
+				dataList.add(new Data(base, hashKeyLength));
+			// Distinct queries, as a node fails a lookup for the key it has
+			// just looked up.
+			Set<Integer> distinct = new HashSet<Integer>();
+			for (Data data : dataList)
+				distinct.add(data.hashCode());
+			List<Integer> queryKeys = new ArrayList<Integer>(distinct);
+			Collections.shuffle(queryKeys, new java.util.Random(seed));
+			queryKeys = queryKeys.subList(0, Math.min(queries,
+					queryKeys.size()));
+
+			for (int canon = 0; canon <= 1; canon++) {
+				RoutingStrategy routing = canon == 1 ? new CanonRouting(
+						domains) : new ChordRouting();
+				rand = Random.getInstance(seed);
+				sim = new Simulation();
+				ring = new ChordRing(base, hashKeyLength, nodes, 1, sim, rand,
+						meanQueryProcTime, routing);
+				ring.setDomains(domains);
+				ring.addAllData(dataList);
+				for (int key : queryKeys)
+					ring.addQuery(key);
+				ring.lookup();
+				sim.run();
+
+				double entries = entriesPerNode();
+				double[] all = stats(0);
+				double[] inRack = stats(rack);
+				double[] inZone = stats(zone);
+				double success = ring.getSeries().stats().mean;
+
+				System.out.printf("%d\t%s\t%.1f\t%.2f\t%.2f\t%.2f\t%.2f\t"
+						+ "%.2f/%.2f/%.2f/%.3f\t%.2f/%.2f/%.2f/%.3f\t%.3f\n",
+						nodes, canon == 1 ? "canon" : "chord", entries, all[0],
+						all[0] - all[1], all[1], all[2], inRack[0], inRack[1],
+						inRack[2], inRack[3], inZone[0], inZone[1], inZone[2],
+						inZone[3], success);
+				results.write(nodes, canon, entries, all[0], all[0] - all[1],
+						all[1], all[2], inRack[0], inRack[1], inRack[2],
+						inRack[3], inZone[0], inZone[1], inZone[2], inZone[3],
+						success);
+				results.flush();
+			}
+		}
+		results.close();
+	}
+
+	/**
+	 * Returns the mean number of distinct nodes the routing table of a node
+	 * points to, besides the node itself.
+	 * 
+	 * @return the mean number of entries
+	 */
+	private static double entriesPerNode() {
+		long entries = 0;
+		for (Node node : ring.getNodes().values()) {
+			RoutingTable table = node.getFingerTable();
+			Set<Node> distinct = new HashSet<Node>();
+			for (int i = 0; i < table.size(); i++) {
+				if (table.getIthEntry(i) != node)
+					distinct.add(table.getIthEntry(i));
+			}
+			entries += distinct.size();
+		}
+		return entries / (double) ring.getNodes().size();
+	}
+
+	/**
+	 * Returns the mean hops, inter-domain hops and latency of the finished
+	 * lookups for keys owned in the domain of their origin at the given level
+	 * or below, and the fraction of them that left that domain.
+	 * 
+	 * @param level
+	 *            the level of the domain, 0 for all the lookups
+	 * @return the hops, inter-domain hops, latency and leak fraction
+	 */
+	private static double[] stats(int level) {
+		ListSeries hops = ring.getHopSeries();
+		ListSeries inter = ring.getInterDomainHopSeries();
+		ListSeries latency = ring.getLatencySeries();
+		ListSeries locality = ring.getLocalitySeries();
+		ListSeries reach = ring.getReachSeries();
+		double[] sums = new double[4];
+		int count = 0;
+		for (int i = 0; i < hops.length(); i++) {
+			if (locality.x(i) < level)
+				continue;
+			count++;
+			sums[0] += hops.x(i);
+			sums[1] += inter.x(i);
+			sums[2] += latency.x(i);
+			if (reach.x(i) < level)
+				sums[3]++;
+		}
+		for (int j = 0; j < sums.length; j++)
+			sums[j] = count == 0 ? 0 : sums[j] / count;
+		return sums;
+	}
+}
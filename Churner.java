@@ -42,9 +42,25 @@ public class Churner {
 	private Map<Integer, Node> nodes;
 
 	/**
-	 * The sorted list of the hash keys of all the nodes in the Chord ring.
+	 * The physical hosts running the nodes in the Chord ring.
 	 */
-	private List<Integer> nodeKeys;
+	private List<Host> hosts;
+
+	/**
+	 * The controller of the periodic stabilization interval, or null if the
+	 * nodes stabilize only after churn.
+	 */
+	private StabilizationController controller;
+
+	/**
+	 * The Random object.
+	 */
+	private Random rand;
+
+	/**
+	 * The number of stabilization procedures run.
+	 */
+	private int stabilizations;
 
 	private boolean stabilize;
 
@@ -67,46 +83,89 @@ public class Churner {
 			ChordRing ring, double meanStabilizeTime, boolean stabilize) {
 		this.sim = sim;
 		this.ring = ring;
+		this.rand = rand;
 		this.churnRate = new ExponentialPrng(rand, 1.0 / meanChurnRate);
 		this.stabilizer = new ExponentialPrng(rand, 1.0 / meanStabilizeTime);
-		this.nodeKeys = ring.getNodeKeys();
+		this.hosts = ring.getHosts();
 		this.nodes = ring.getNodes();
 		this.stabilize = stabilize;
 		churn();
 	}
 
 	/**
-	 * Simulates the voluntary arrival and departure of nodes in the Chord ring
-	 * at regular intervals exponentially distributed over a mean interval. Also
-	 * simulates the stabilization procedure on relevant nodes that are affected
-	 * by the arrival/departure of a node from the ring.
+	 * Construct a new Churner object and start the simulation of churning of
+	 * nodes in the Chord ring, with every node running the stabilization
+	 * procedure periodically at the interval chosen by the given controller
+	 * rather than after churn.
+	 * 
+	 * @param sim
+	 *            the Simulation object
+	 * @param rand
+	 *            the Random object
+	 * @param meanChurnRate
+	 *            the mean churn interval
+	 * @param ring
+	 *            the ChordRing object
+	 * @param controller
+	 *            the controller of the stabilization interval
+	 */
+	public Churner(Simulation sim, Random rand, double meanChurnRate,
+			ChordRing ring, StabilizationController controller) {
+		this.sim = sim;
+		this.ring = ring;
+		this.rand = rand;
+		this.churnRate = new ExponentialPrng(rand, 1.0 / meanChurnRate);
+		this.hosts = ring.getHosts();
+		this.nodes = ring.getNodes();
+		this.controller = controller;
+		for (Node node : nodes.values())
+			schedule(node);
+		churn();
+	}
+
+	/**
+	 * Changes the mean churn interval from the next churn event on.
+	 * 
+	 * @param meanChurnRate
+	 *            the mean churn interval
+	 */
+	public void setMeanChurnRate(double meanChurnRate) {
+		this.churnRate = new ExponentialPrng(rand, 1.0 / meanChurnRate);
+	}
+
+	/**
+	 * Returns the number of stabilization procedures run by the nodes.
+	 * 
+	 * @return the number of stabilizations
+	 */
+	public int getStabilizations() {
+		return stabilizations;
+	}
+
+	/**
+	 * Simulates the voluntary arrival and departure of physical hosts, with
+	 * all their virtual nodes, in the Chord ring at regular intervals
+	 * exponentially distributed over a mean interval. Also simulates the
+	 * stabilization procedure on relevant nodes that are affected by the
+	 * arrival/departure of a node from the ring.
 	 */
 	public void churn() {
 		if (!ring.isQueueEmpty()) {
-			int nodeKey = nodeKeys.get(new java.util.Random().nextInt(nodeKeys
+			Host host = hosts.get(new java.util.Random().nextInt(hosts
 					.size()));
-			final Node node = nodes.get(nodeKey);
-			node.changeState();
+			host.changeState();
+			if (controller != null)
+				controller.churned();
 			if (stabilize) {
-				sim.doAfter(stabilizer.next(), new Event() {
-
-					@Override
-					public void perform() {
-						// Calls the stabilize procedure of the affected nodes
-						// in the Chord ring.
-						for (Node n : nodes.values()) {
-							if (n.isAlive()) {
-								FingerTable table = n.getFingerTable();
-								for (int i = 0; i < table.size(); i++) {
-									if (table.getIthEntry(i).equals(node)) {
-										n.start();
-										break;
-									}
-								}
-							}
+				for (final Node node : host.getNodes()) {
+					sim.doAfter(stabilizer.next(), new Event() {
+
+						@Override
+						public void perform() {
+							stabilizeAffected(node);
 						}
-					}
-				});
+					});
+				}
 			}
 			sim.doAfter(churnRate.next(), new Event() {
 
@@ -117,4 +176,52 @@ public class Churner {
 			});
 		}
 	}
+
+	/**
+	 * Calls the stabilize procedure of the nodes in the Chord ring that are
+	 * affected by the arrival/departure of the given node, i.e. the active
+	 * nodes having the node in their finger table.
+	 * 
+	 * @param node
+	 *            the node that arrived or departed
+	 */
+	public void stabilizeAffected(Node node) {
+		for (Node n : nodes.values()) {
+			if (n.isAlive()) {
+				RoutingTable table = n.getFingerTable();
+				for (int i = 0; i < table.size(); i++) {
+					if (table.getIthEntry(i).equals(node)) {
+						n.start();
+						stabilizations++;
+						break;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Schedules the next periodic stabilization of the given node after the
+	 * current interval of the controller, as long as queries remain. A dead
+	 * node skips its turn but keeps its schedule, in case its host comes
+	 * back.
+	 * 
+	 * @param node
+	 *            the Node object
+	 */
+	private void schedule(final Node node) {
+		sim.doAfter(controller.nextDelay(), new Event() {
+
+			@Override
+			public void perform() {
+				if (ring.isQueueEmpty())
+					return;
+				if (node.isAlive()) {
+					node.start();
+					stabilizations++;
+				}
+				schedule(node);
+			}
+		});
+	}
 }
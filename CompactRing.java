@@ -0,0 +1,389 @@
+import java.util.Arrays;
+
+import edu.rit.util.Random;
+
+/**
+ * Class CompactRing is a memory-lean model of a Chord ring for rings of
+ * millions of nodes. Instead of a Node object per node, with its own data map,
+ * finger table and lookup history, the routing state of all the nodes lives
+ * in a few shared primitive arrays indexed by node slot: the hash keys of the
+ * nodes, the slots of their successors and predecessors, their finger tables
+ * laid out one after the other in a single array, and a bitset of the active
+ * nodes. Slots are numbered in increasing hash key order.
+ * <P>
+ * Hash keys are m bits long, up to 32, and are compared unsigned, so that a
+ * ring of m = 32 uses the whole range of an int. Lookups are routed on the
+ * arrays directly, iteratively, the same way a Node forwards a query: to the
+ * successor if the key lies between a node and its successor, otherwise to the
+ * active finger closest to the key without passing it.
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+public class CompactRing {
+	/**
+	 * The number of bits in the hash key.
+	 */
+	private int m;
+
+	/**
+	 * The mask of the hash key bits, i.e. the size of the ring minus one.
+	 */
+	private long mask;
+
+	/**
+	 * The number of nodes in the ring.
+	 */
+	private int n;
+
+	/**
+	 * The hash keys of the nodes, in increasing unsigned order.
+	 */
+	private int[] ids;
+
+	/**
+	 * The slots of the successor and predecessor of every node.
+	 */
+	private int[] succ;
+	private int[] pred;
+
+	/**
+	 * The finger tables of all the nodes; entry i of the node in slot s is at
+	 * index s * m + i.
+	 */
+	private int[] fingers;
+
+	/**
+	 * The bitset of the active nodes, by slot.
+	 */
+	private long[] alive;
+
+	/**
+	 * The number of hops made by the last lookup.
+	 */
+	private int hops;
+
+	/**
+	 * Construct a new CompactRing object with the given number of active nodes
+	 * at distinct random hash keys, all their routing state up to date.
+	 * 
+	 * @param m
+	 *            the number of bits in the hash key, at most 32
+	 * @param n
+	 *            the number of nodes, at most 2^m
+	 * @param rand
+	 *            the Random object
+	 */
+	public CompactRing(int m, int n, Random rand) {
+		if (m < 1 || m > 32 || (m < 32 && n > (1L << m)))
+			throw new IllegalArgumentException("Cannot place " + n
+					+ " nodes on a ring of " + m + " bits");
+		this.m = m;
+		this.mask = (1L << m) - 1;
+		this.n = n;
+		this.ids = randomIds(rand);
+		this.succ = new int[n];
+		this.pred = new int[n];
+		this.fingers = new int[n * m];
+		this.alive = new long[(n + 63) >>> 6];
+		Arrays.fill(alive, -1L);
+		repair();
+	}
+
+	/**
+	 * Draws the distinct hash keys of the nodes and sorts them in increasing
+	 * unsigned order.
+	 * 
+	 * @param rand
+	 *            the Random object
+	 * @return the hash keys
+	 */
+	private int[] randomIds(Random rand) {
+		int[] keys = new int[n];
+		int count = 0;
+		while (count < n) {
+			for (int i = count; i < n; i++)
+				keys[i] = (int) (long) (rand.nextDouble() * (mask + 1))
+						^ Integer.MIN_VALUE;
+			// Sorting with the sign bit flipped sorts unsigned.
+			Arrays.sort(keys, 0, n);
+			count = 0;
+			for (int i = 0; i < n; i++) {
+				if (i == 0 || keys[i] != keys[count - 1])
+					keys[count++] = keys[i];
+			}
+		}
+		for (int i = 0; i < n; i++)
+			keys[i] ^= Integer.MIN_VALUE;
+		return keys;
+	}
+
+	/**
+	 * Recomputes the successor, predecessor and finger table of every node
+	 * over the active nodes, as if the ring had fully stabilized.
+	 */
+	public void repair() {
+		int[] live = new int[activeNodes()];
+		int count = 0;
+		for (int s = 0; s < n; s++) {
+			if (isAlive(s))
+				live[count++] = s;
+		}
+		if (count == 0)
+			return;
+		for (int s = 0; s < n; s++) {
+			long id = unsigned(ids[s]);
+			succ[s] = live[ceiling(live, (id + 1) & mask)];
+			pred[s] = live[(ceiling(live, id) + count - 1) % count];
+			int base = s * m;
+			for (int i = 0; i < m; i++)
+				fingers[base + i] = live[ceiling(live, (id + (1L << i))
+						& mask)];
+		}
+	}
+
+	/**
+	 * Returns the index in the given active slots of the first node whose hash
+	 * key is at least the given key, wrapping around to the first node.
+	 * 
+	 * @param live
+	 *            the slots of the active nodes, in increasing order
+	 * @param key
+	 *            the hash key
+	 * @return the index in the active slots
+	 */
+	private int ceiling(int[] live, long key) {
+		int lo = 0;
+		int hi = live.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (unsigned(ids[live[mid]]) < key)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo == live.length ? 0 : lo;
+	}
+
+	/**
+	 * Looks up the node responsible for the given hash key, starting at the
+	 * given node. The number of hops made is available from getHops()
+	 * afterwards.
+	 * 
+	 * @param start
+	 *            the slot of the node the lookup is initiated at
+	 * @param key
+	 *            the hash key
+	 * @return the slot of the responsible node, or -1 if the lookup reached a
+	 *         dead node or did not converge
+	 */
+	public int lookup(int start, int key) {
+		long k = unsigned(key) & mask;
+		int cur = start;
+		hops = 0;
+		while (hops <= 2 * m) {
+			if (!isAlive(cur))
+				return -1;
+			long id = unsigned(ids[cur]);
+			if (id == k)
+				return cur;
+			int next = succ[cur];
+			long toKey = (k - id) & mask;
+			if (toKey > ((unsigned(ids[next]) - id) & mask)) {
+				next = closestPreceding(cur, id, toKey);
+			} else if (isAlive(next)) {
+				hops++;
+				return next;
+			}
+			cur = next;
+			hops++;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the active finger of the given node closest to a key without
+	 * passing it, or the node's successor if there is none.
+	 * 
+	 * @param s
+	 *            the slot of the node
+	 * @param id
+	 *            the hash key of the node
+	 * @param toKey
+	 *            the clockwise distance from the node to the key
+	 * @return the slot of the next hop
+	 */
+	private int closestPreceding(int s, long id, long toKey) {
+		int base = s * m;
+		for (int i = m - 1; i >= 0; i--) {
+			int f = fingers[base + i];
+			long d = (unsigned(ids[f]) - id) & mask;
+			if (d != 0 && d < toKey && isAlive(f))
+				return f;
+		}
+		return succ[s];
+	}
+
+	/**
+	 * Returns the active node responsible for the given hash key, i.e. its
+	 * active successor, found by a scan of the hash keys rather than by
+	 * routing.
+	 * 
+	 * @param key
+	 *            the hash key
+	 * @return the slot of the responsible node, or -1 if no node is active
+	 */
+	public int owner(int key) {
+		long k = unsigned(key) & mask;
+		int lo = 0;
+		int hi = n;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (unsigned(ids[mid]) < k)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		for (int i = 0; i < n; i++) {
+			int s = (lo + i) % n;
+			if (isAlive(s))
+				return s;
+		}
+		return -1;
+	}
+
+	/**
+	 * Fails the node in the given slot, leaving the routing state of the other
+	 * nodes untouched until the next repair().
+	 * 
+	 * @param s
+	 *            the slot of the node
+	 */
+	public void fail(int s) {
+		alive[s >>> 6] &= ~(1L << s);
+	}
+
+	/**
+	 * Revives the node in the given slot.
+	 * 
+	 * @param s
+	 *            the slot of the node
+	 */
+	public void revive(int s) {
+		alive[s >>> 6] |= 1L << s;
+	}
+
+	/**
+	 * Checks whether the node in the given slot is active.
+	 * 
+	 * @param s
+	 *            the slot of the node
+	 * @return true if the node is active, false otherwise
+	 */
+	public boolean isAlive(int s) {
+		return (alive[s >>> 6] & (1L << s)) != 0;
+	}
+
+	/**
+	 * Returns the number of active nodes.
+	 * 
+	 * @return the number of active nodes
+	 */
+	public int activeNodes() {
+		int count = 0;
+		for (int i = 0; i < alive.length; i++) {
+			long word = alive[i];
+			if (i == alive.length - 1 && (n & 63) != 0)
+				word &= (1L << n) - 1;
+			count += Long.bitCount(word);
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the number of nodes in the ring.
+	 * 
+	 * @return the number of nodes
+	 */
+	public int size() {
+		return n;
+	}
+
+	/**
+	 * Returns the hash key of the node in the given slot.
+	 * 
+	 * @param s
+	 *            the slot of the node
+	 * @return the hash key, to be read unsigned
+	 */
+	public int getId(int s) {
+		return ids[s];
+	}
+
+	/**
+	 * Returns the slot of the successor of the node in the given slot.
+	 * 
+	 * @param s
+	 *            the slot of the node
+	 * @return the slot of the successor
+	 */
+	public int getSuccessor(int s) {
+		return succ[s];
+	}
+
+	/**
+	 * Returns the slot of the predecessor of the node in the given slot.
+	 * 
+	 * @param s
+	 *            the slot of the node
+	 * @return the slot of the predecessor
+	 */
+	public int getPredecessor(int s) {
+		return pred[s];
+	}
+
+	/**
+	 * Returns the ith finger table entry of the node in the given slot.
+	 * 
+	 * @param s
+	 *            the slot of the node
+	 * @param i
+	 *            the entry index
+	 * @return the slot of the finger
+	 */
+	public int getFinger(int s, int i) {
+		return fingers[s * m + i];
+	}
+
+	/**
+	 * Returns the number of hops made by the last lookup.
+	 * 
+	 * @return the number of hops
+	 */
+	public int getHops() {
+		return hops;
+	}
+
+	/**
+	 * Returns the memory taken by the routing state per node, i.e. the size of
+	 * the shared arrays divided by the number of nodes.
+	 * 
+	 * @return the number of bytes per node
+	 */
+	public double bytesPerNode() {
+		long bytes = 4L * (ids.length + succ.length + pred.length
+				+ fingers.length) + 8L * alive.length;
+		return bytes / (double) n;
+	}
+
+	/**
+	 * Returns the given hash key as an unsigned value.
+	 * 
+	 * @param key
+	 *            the hash key
+	 * @return the unsigned value
+	 */
+	private static long unsigned(int key) {
+		return key & 0xffffffffL;
+	}
+}
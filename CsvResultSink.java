@@ -0,0 +1,89 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * Class CsvResultSink writes the results as comma separated values. The
+ * first line holds the names of the columns.
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+public class CsvResultSink implements ResultSink {
+	/**
+	 * The writer the lines are written to.
+	 */
+	private Writer out;
+
+	/**
+	 * The number of columns.
+	 */
+	private int columns;
+
+	/**
+	 * Construct a new CsvResultSink object and write the header line.
+	 * 
+	 * @param out
+	 *            the writer for the lines
+	 * @param columns
+	 *            the names of the columns
+	 */
+	public CsvResultSink(Writer out, String... columns) {
+		this.out = out;
+		this.columns = columns.length;
+		StringBuilder line = new StringBuilder();
+		for (String column : columns) {
+			if (line.length() > 0)
+				line.append(',');
+			line.append(column);
+		}
+		writeLine(line);
+	}
+
+	public void write(double... values) {
+		if (values.length != columns)
+			throw new IllegalArgumentException("Expected " + columns
+					+ " values, got " + values.length);
+		StringBuilder line = new StringBuilder();
+		for (int i = 0; i < values.length; i++) {
+			if (i > 0)
+				line.append(',');
+			double value = values[i];
+			if (value == (long) value)
+				line.append((long) value);
+			else
+				line.append(value);
+		}
+		writeLine(line);
+	}
+
+	public void flush() {
+		try {
+			out.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public void close() {
+		try {
+			out.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Writes a line to the writer.
+	 * 
+	 * @param line
+	 *            the line without the line terminator
+	 */
+	private void writeLine(CharSequence line) {
+		try {
+			out.append(line).append('\n');
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
@@ -33,6 +33,17 @@ public class Data {
 		this.hashKey = new Random().nextInt(maxSize);
 	}
 
+	/**
+	 * Construct a new data object with the given hash key, e.g. as received
+	 * over the network.
+	 * 
+	 * @param hashKey
+	 *            the hash key of the Data object
+	 */
+	public Data(int hashKey) {
+		this.hashKey = hashKey;
+	}
+
 	/**
 	 * Sets the node on which this object is stored.
 	 * 
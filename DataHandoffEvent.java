@@ -0,0 +1,53 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Class DataHandoffEvent is a JDK Flight Recorder event committed when data
+ * items are handed from one node of the Chord ring to another.
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+@Name("chord.DataHandoff")
+@Label("Data Handoff")
+@Category({ "Chord", "Membership" })
+@Description("Data items are handed from one node to another")
+public class DataHandoffEvent extends Event {
+	@Label("From Node Id")
+	int from;
+
+	@Label("To Node Id")
+	int to;
+
+	@Label("Items")
+	int items;
+
+	@Label("Simulated Time")
+	double simTime;
+
+	/**
+	 * Commits a new event if the event is enabled in the recording.
+	 * 
+	 * @param from
+	 *            the hash key of the node handing off the data
+	 * @param to
+	 *            the hash key of the node receiving the data
+	 * @param items
+	 *            the number of data items
+	 * @param simTime
+	 *            the current simulated time
+	 */
+	public static void emit(int from, int to, int items, double simTime) {
+		DataHandoffEvent event = new DataHandoffEvent();
+		if (event.isEnabled()) {
+			event.from = from;
+			event.to = to;
+			event.items = items;
+			event.simTime = simTime;
+			event.commit();
+		}
+	}
+}
@@ -0,0 +1,122 @@
+/**
+ * Class DomainTree describes the hierarchy of administrative or physical
+ * domains the hosts of a Chord ring sit in, e.g. zones made of racks. Level 0
+ * is the root, the whole ring, and every domain at a level is split into a
+ * given number of domains at the level below, down to the leaf domains. The
+ * hosts are spread round robin over the leaf domains by their index, so the
+ * nodes of every domain are a random sample of the hash keys.
+ * <P>
+ * A message between two nodes pays the latency of the level of their lowest
+ * common domain, e.g. a cross-zone latency if they are in different zones.
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+public class DomainTree {
+	/**
+	 * The number of domains every domain at a level is split into, from the
+	 * root down.
+	 */
+	private int[] fanouts;
+
+	/**
+	 * The number of leaf domains in every domain at a level, from the root
+	 * down to the leaf domains themselves.
+	 */
+	private int[] spans;
+
+	/**
+	 * The latency of a message between two nodes whose lowest common domain
+	 * is at a level, from the root down to the leaf domains.
+	 */
+	private double[] latencies;
+
+	/**
+	 * Construct a new DomainTree object.
+	 * 
+	 * @param fanouts
+	 *            the number of domains every domain at a level is split into,
+	 *            from the root down
+	 * @param latencies
+	 *            the latency of a message between two nodes whose lowest
+	 *            common domain is at a level, from the root down to the leaf
+	 *            domains, one more than the fanouts
+	 */
+	public DomainTree(int[] fanouts, double[] latencies) {
+		if (latencies.length != fanouts.length + 1)
+			throw new IllegalArgumentException("Expected "
+					+ (fanouts.length + 1) + " latencies, got "
+					+ latencies.length);
+		this.fanouts = fanouts.clone();
+		this.latencies = latencies.clone();
+		this.spans = new int[fanouts.length + 1];
+		spans[fanouts.length] = 1;
+		for (int l = fanouts.length - 1; l >= 0; l--)
+			spans[l] = spans[l + 1] * fanouts[l];
+	}
+
+	/**
+	 * Returns the level of the leaf domains, i.e. the number of levels below
+	 * the root.
+	 * 
+	 * @return the leaf level
+	 */
+	public int levels() {
+		return fanouts.length;
+	}
+
+	/**
+	 * Returns the number of leaf domains.
+	 * 
+	 * @return the number of leaf domains
+	 */
+	public int leaves() {
+		return spans[0];
+	}
+
+	/**
+	 * Returns the index of the domain at the given level the given node is in.
+	 * The nodes of a host are in its domains, a node without a host is placed
+	 * by its hash key.
+	 * 
+	 * @param node
+	 *            the Node object
+	 * @param level
+	 *            the level, 0 being the root
+	 * @return the index of the domain among the domains at the level
+	 */
+	public int domain(Node node, int level) {
+		Host host = node.getHost();
+		int leaf = (host != null ? host.getId() : node.getId()) % spans[0];
+		return leaf / spans[level];
+	}
+
+	/**
+	 * Returns the level of the lowest domain both given nodes are in.
+	 * 
+	 * @param a
+	 *            the first Node object
+	 * @param b
+	 *            the second Node object
+	 * @return the level of the lowest common domain, 0 being the root
+	 */
+	public int commonLevel(Node a, Node b) {
+		int level = fanouts.length;
+		while (level > 0 && domain(a, level) != domain(b, level))
+			level--;
+		return level;
+	}
+
+	/**
+	 * Returns the latency of a message between the given nodes.
+	 * 
+	 * @param from
+	 *            the sending Node object
+	 * @param to
+	 *            the receiving Node object
+	 * @return the latency
+	 */
+	public double latency(Node from, Node to) {
+		return latencies[commonLevel(from, to)];
+	}
+}
@@ -0,0 +1,246 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+
+import edu.rit.util.Random;
+
+/**
+ * Class FailureInjector simulates correlated failures in a Chord ring, such as
+ * a rack or an availability zone going down, and the repair of the ring
+ * afterwards. A set of nodes, chosen either as a random fraction of the active
+ * nodes or as the nodes in a contiguous arc of hash keys, is failed or revived
+ * at once.
+ * <P>
+ * The ring is repaired in bulk: instead of every affected node running the
+ * stabilization procedure, the successor, predecessor and finger table of
+ * every active node are recomputed in one pass over the sorted hash keys, and
+ * the data of the failed nodes is handed off to their first active successor.
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+public class FailureInjector {
+	/**
+	 * The ChordRing object.
+	 */
+	private ChordRing ring;
+
+	/**
+	 * The collection of nodes in the Chord ring, sorted by hash key.
+	 */
+	private NavigableMap<Integer, Node> nodes;
+
+	/**
+	 * The random number generator choosing the nodes to fail.
+	 */
+	private Random rand;
+
+	/**
+	 * The nodes revived since the last repair, which take their data back.
+	 */
+	private List<Node> revived = new ArrayList<Node>();
+
+	/**
+	 * Construct a new FailureInjector object for the given ring.
+	 * 
+	 * @param ring
+	 *            the ChordRing object
+	 * @param rand
+	 *            the Random object
+	 */
+	public FailureInjector(ChordRing ring, Random rand) {
+		this.ring = ring;
+		this.nodes = ring.getNodes();
+		this.rand = rand;
+	}
+
+	/**
+	 * Fails the given fraction of the active nodes, chosen at random.
+	 * 
+	 * @param fraction
+	 *            the fraction of the active nodes to fail, between 0 and 1
+	 * @return the list of failed nodes
+	 */
+	public List<Node> failFraction(double fraction) {
+		List<Node> alive = new ArrayList<Node>();
+		for (Node node : nodes.values()) {
+			if (node.isAlive())
+				alive.add(node);
+		}
+		int count = (int) Math.round(fraction * alive.size());
+		// Partial Fisher-Yates shuffle of the first count nodes.
+		for (int i = 0; i < count; i++) {
+			int j = i + rand.nextInt(alive.size() - i);
+			Node node = alive.get(j);
+			alive.set(j, alive.get(i));
+			alive.set(i, node);
+		}
+		List<Node> failed = new ArrayList<Node>(alive.subList(0, count));
+		fail(failed);
+		return failed;
+	}
+
+	/**
+	 * Fails the given fraction of the active physical hosts, chosen at
+	 * random, with all their virtual nodes.
+	 * 
+	 * @param fraction
+	 *            the fraction of the active hosts to fail, between 0 and 1
+	 * @return the list of failed nodes
+	 */
+	public List<Node> failHosts(double fraction) {
+		List<Host> alive = new ArrayList<Host>();
+		for (Host host : ring.getHosts()) {
+			if (host.isAlive())
+				alive.add(host);
+		}
+		int count = (int) Math.round(fraction * alive.size());
+		List<Node> failed = new ArrayList<Node>();
+		for (int i = 0; i < count; i++) {
+			int j = i + rand.nextInt(alive.size() - i);
+			Host host = alive.get(j);
+			alive.set(j, alive.get(i));
+			alive.set(i, host);
+			failed.addAll(host.fail());
+		}
+		return failed;
+	}
+
+	/**
+	 * Fails the active nodes whose hash keys lie in the arc of the given
+	 * length starting at the given hash key, wrapping around zero.
+	 * 
+	 * @param start
+	 *            the first hash key of the arc
+	 * @param length
+	 *            the number of hash keys in the arc
+	 * @return the list of failed nodes
+	 */
+	public List<Node> failArc(int start, int length) {
+		List<Node> failed = new ArrayList<Node>();
+		int maxSize = ring.ringMaxSize();
+		for (Node node : nodes.values()) {
+			int offset = ((node.getId() - start) % maxSize + maxSize)
+					% maxSize;
+			if (offset < length && node.isAlive())
+				failed.add(node);
+		}
+		fail(failed);
+		return failed;
+	}
+
+	/**
+	 * Fails the given nodes at once.
+	 * 
+	 * @param failed
+	 *            the nodes to fail
+	 */
+	public void fail(List<Node> failed) {
+		for (Node node : failed)
+			node.fail();
+	}
+
+	/**
+	 * Revives the given nodes at once. They rejoin the ring and take their
+	 * data back at the next repair.
+	 * 
+	 * @param failed
+	 *            the nodes to revive
+	 */
+	public void revive(List<Node> failed) {
+		for (Node node : failed) {
+			if (!node.isAlive()) {
+				node.revive();
+				revived.add(node);
+			}
+		}
+	}
+
+	/**
+	 * Repairs the ring in bulk. Hands the data of every failed node off to its
+	 * first active successor, sets the successor, predecessor and finger table
+	 * of every active node, and lets the nodes revived since the last repair
+	 * take their data back from their successor.
+	 * <P>
+	 * The finger i of the active nodes in hash key order points to
+	 * non-decreasing positions of the sorted active keys (going once around
+	 * the ring), so each finger index is resolved with a single sweep over the
+	 * active keys, and the repair takes O(N log N) time for N nodes and
+	 * log N fingers. Routing tables other than finger tables are updated one
+	 * node at a time by the ring's routing strategy.
+	 * 
+	 * @return the number of active nodes
+	 */
+	public int repair() {
+		Node[] live = new Node[nodes.size()];
+		int count = 0;
+		for (Node node : nodes.values()) {
+			if (node.isAlive())
+				live[count++] = node;
+		}
+		if (count == 0)
+			return 0;
+
+		// Hand the data of the failed nodes off, sweeping backwards so the
+		// first active successor of every node is known.
+		Node next = live[0];
+		for (Node node : nodes.descendingMap().values()) {
+			if (node.isAlive())
+				next = node;
+			else
+				node.handOffData(next);
+		}
+
+		for (int k = 0; k < count; k++) {
+			live[k].setSuccessor(live[(k + 1) % count]);
+			live[k].setPredecessor(live[(k + count - 1) % count]);
+		}
+
+		if (ring.getRouting() instanceof ChordRouting) {
+			int maxSize = ring.ringMaxSize();
+			int fingers = ring.getHashKeyLength();
+			for (int i = 0; i < fingers; i++) {
+				int step = (int) Math.pow(ring.ringBase(), i);
+				// Position in the active keys unrolled twice around the ring.
+				int p = 0;
+				for (int k = 0; k < count; k++) {
+					long target = (long) live[k].getId() + step;
+					while (p < 2 * count
+							&& unrolled(live, count, p, maxSize) < target)
+						p++;
+					live[k].getFingerTable().setIthEntry(i, live[p % count]);
+				}
+			}
+		} else {
+			// Other routing tables are brought up to date by their strategy.
+			for (int k = 0; k < count; k++)
+				ring.getRouting().maintain(live[k]);
+		}
+
+		for (Node node : revived)
+			if (node.isAlive())
+				node.reclaimData(node.getSuccessor());
+		revived.clear();
+		return count;
+	}
+
+	/**
+	 * Returns the hash key at the given position of the active keys unrolled
+	 * twice around the ring, i.e. with the ring size added to the keys of the
+	 * second round.
+	 * 
+	 * @param live
+	 *            the active nodes in hash key order
+	 * @param count
+	 *            the number of active nodes
+	 * @param p
+	 *            the position, less than twice the number of active nodes
+	 * @param maxSize
+	 *            the size of the ring
+	 * @return the unrolled hash key
+	 */
+	private static long unrolled(Node[] live, int count, int p, int maxSize) {
+		return p < count ? live[p].getId() : (long) live[p - count].getId()
+				+ maxSize;
+	}
+}
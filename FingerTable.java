@@ -1,29 +1,37 @@
 import java.util.ArrayList;
 import java.util.List;
 
-public class FingerTable {
+public class FingerTable implements RoutingTable {
 	private Node[] table;
+	private boolean[] suspect;
 	private ChordRing ring;
 
 	public FingerTable(ChordRing ring) {
 		this.table = new Node[ring.getHashKeyLength()];
+		this.suspect = new boolean[table.length];
 		this.ring = ring;
 	}
 
 	public void update(int nodeKey) {
 		for (int i = 0; i < table.length; i++) {
-			table[i] = ring.getFingerTableEntry(nodeKey, i);
+			table[i] = resolve(nodeKey, i);
+			suspect[i] = false;
 		}
 	}
 
 	public boolean updateEntry(int nodeKey, int i) {
-		if (table[i] != ring.getFingerTableEntry(nodeKey, i)) {
-			table[i] = ring.getFingerTableEntry(nodeKey, i);
+		suspect[i] = false;
+		if (table[i] != resolve(nodeKey, i)) {
+			table[i] = resolve(nodeKey, i);
 			return true;
 		}
 		return false;
 	}
 
+	public Node resolve(int nodeKey, int i) {
+		return ring.getFingerTableEntry(nodeKey, i);
+	}
+
 	public int size() {
 		return this.table.length;
 	}
@@ -32,6 +40,29 @@ public class FingerTable {
 		return this.table[i];
 	}
 
+	public void setIthEntry(int i, Node node) {
+		this.table[i] = node;
+		this.suspect[i] = false;
+	}
+
+	/**
+	 * Marks every entry pointing to the given node as suspect, after a message
+	 * to it timed out. The marks are cleared when the entries are updated.
+	 * 
+	 * @param node
+	 *            the Node object that did not answer
+	 */
+	public void markSuspect(Node node) {
+		for (int i = 0; i < table.length; i++) {
+			if (table[i] == node)
+				suspect[i] = true;
+		}
+	}
+
+	public boolean isSuspect(int i) {
+		return this.suspect[i];
+	}
+
 	public String string() {
 		List<Node> temp = new ArrayList<Node>();
 		for (Node node : table)
@@ -0,0 +1,202 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class Host represents a physical host running one or more virtual nodes of
+ * the Chord ring. Each virtual node has a hash key of its own, so the key
+ * range owned by a host is the sum of several smaller ranges, which evens out
+ * the load between hosts. The data, queries and failures are accounted per
+ * host, and the virtual nodes of a host fail and recover together.
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+public class Host {
+	/**
+	 * The index of the host.
+	 */
+	private int id;
+
+	/**
+	 * The virtual nodes run by the host.
+	 */
+	private List<Node> nodes;
+
+	/**
+	 * The number of times the host failed.
+	 */
+	private int failures;
+
+	/**
+	 * Construct a new Host object without virtual nodes.
+	 * 
+	 * @param id
+	 *            the index of the host
+	 */
+	public Host(int id) {
+		this.id = id;
+		this.nodes = new ArrayList<Node>();
+	}
+
+	/**
+	 * Adds a virtual node to the host.
+	 * 
+	 * @param node
+	 *            the Node object
+	 */
+	public void addNode(Node node) {
+		nodes.add(node);
+		node.setHost(this);
+	}
+
+	/**
+	 * Removes a virtual node from the host.
+	 * 
+	 * @param node
+	 *            the Node object
+	 */
+	public void removeNode(Node node) {
+		nodes.remove(node);
+	}
+
+	/**
+	 * Checks whether the host is up, i.e. any of its virtual nodes is active.
+	 * 
+	 * @return true if active, false otherwise
+	 */
+	public boolean isAlive() {
+		for (Node node : nodes)
+			if (node.isAlive())
+				return true;
+		return false;
+	}
+
+	/**
+	 * Changes the state of the host. If the host is up, all its active
+	 * virtual nodes leave the ring, each handing its data off to the first
+	 * successor not run by this host; otherwise all its virtual nodes join
+	 * the ring again.
+	 */
+	public void changeState() {
+		if (isAlive()) {
+			failures++;
+			for (Node node : nodes)
+				if (node.isAlive())
+					node.changeState(heir(node));
+		} else {
+			for (Node node : nodes)
+				node.changeState();
+		}
+	}
+
+	/**
+	 * Returns the node the given virtual node of the host hands its data off
+	 * to when the host goes down: its successor, skipping the successors that
+	 * are virtual nodes of this host as well, since they go down with it.
+	 * 
+	 * @param node
+	 *            the virtual node
+	 * @return the heir Node object, or the node itself if the host runs all
+	 *         the nodes it knows of
+	 */
+	private Node heir(Node node) {
+		Node heir = node.getSuccessor();
+		for (int i = 0; i < nodes.size() && heir.getHost() == this; i++)
+			heir = heir.getSuccessor();
+		return heir.getHost() == this ? node : heir;
+	}
+
+	/**
+	 * Fails all the active virtual nodes of the host at once, without data
+	 * handoff.
+	 * 
+	 * @return the list of failed nodes
+	 */
+	public List<Node> fail() {
+		List<Node> failed = new ArrayList<Node>();
+		if (isAlive())
+			failures++;
+		for (Node node : nodes) {
+			if (node.isAlive()) {
+				node.fail();
+				failed.add(node);
+			}
+		}
+		return failed;
+	}
+
+	/**
+	 * Returns the number of data items stored on the virtual nodes of the
+	 * host.
+	 * 
+	 * @return the key load of the host
+	 */
+	public int getKeyLoad() {
+		int keys = 0;
+		for (Node node : nodes)
+			keys += node.getDataCount();
+		return keys;
+	}
+
+	/**
+	 * Returns the number of lookups processed by the virtual nodes of the
+	 * host.
+	 * 
+	 * @return the query load of the host
+	 */
+	public long getQueryLoad() {
+		long queries = 0;
+		for (Node node : nodes)
+			queries += node.getQueryLoad();
+		return queries;
+	}
+
+	/**
+	 * Returns the number of times the host failed.
+	 * 
+	 * @return the number of failures
+	 */
+	public int getFailures() {
+		return failures;
+	}
+
+	/**
+	 * Returns the number of routing table entries kept by the host, i.e. the
+	 * finger table, successor and predecessor of each of its virtual nodes.
+	 * 
+	 * @return the number of routing entries
+	 */
+	public int getRoutingEntries() {
+		int entries = 0;
+		for (Node node : nodes)
+			entries += node.getFingerTable().size() + 2;
+		return entries;
+	}
+
+	/**
+	 * Returns the virtual nodes of the host.
+	 * 
+	 * @return the list of Node objects
+	 */
+	public List<Node> getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * Returns the index of the host.
+	 * 
+	 * @return the index of the host
+	 */
+	public int getId() {
+		return id;
+	}
+
+	/**
+	 * Returns the string representation of the Host.
+	 * 
+	 * @return the index of the host and its virtual nodes as a String
+	 */
+	public String toString() {
+		return "Host " + id + nodes;
+	}
+}
@@ -0,0 +1,230 @@
+/**
+ * Class KoordeRouting is the routing of the Koorde DHT, a de Bruijn graph
+ * embedded in the Chord ring. A node of hash key m keeps, for a degree k, the
+ * predecessor of the hash key k * m and the k - 1 nodes following it, besides
+ * a few successors. A lookup for a key travels through imaginary nodes: the
+ * node responsible for the imaginary node i forwards the lookup to its de
+ * Bruijn entry closest to the imaginary node k * i + d, d being the next
+ * base-k digit of the key, and once all the digits are shifted in the
+ * imaginary node is the key itself. Between de Bruijn hops, the lookup walks
+ * the successors to the node responsible for the imaginary node.
+ * <P>
+ * The first imaginary node is picked among the hash keys the starting node is
+ * responsible for so that as many digits of the key as possible are in it
+ * already. With a degree of about log N this takes O(log N / log log N) hops
+ * for O(log N) state per node. The key space has to be a power of two and so
+ * does the degree. The imaginary node is kept in the Lookup.
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+public class KoordeRouting implements RoutingStrategy {
+	/**
+	 * The number of de Bruijn entries per node.
+	 */
+	private int degree;
+
+	/**
+	 * The number of bits of a base-k digit.
+	 */
+	private int digitBits;
+
+	/**
+	 * The number of successor entries per node.
+	 */
+	private int successors;
+
+	/**
+	 * Construct a new KoordeRouting object.
+	 * 
+	 * @param degree
+	 *            the number of de Bruijn entries per node, a power of two
+	 * @param successors
+	 *            the number of successor entries per node
+	 */
+	public KoordeRouting(int degree, int successors) {
+		if (degree < 2 || Integer.bitCount(degree) != 1)
+			throw new IllegalArgumentException("Koorde degree " + degree
+					+ " is not a power of two");
+		this.degree = degree;
+		this.digitBits = Integer.numberOfTrailingZeros(degree);
+		this.successors = successors;
+	}
+
+	public RoutingTable createTable(ChordRing ring, Node node) {
+		if (ring.ringBase() != 2)
+			throw new IllegalArgumentException(
+					"Koorde routing needs a power-of-two key space");
+		return new KoordeTable(ring, degree, successors);
+	}
+
+	public void maintain(Node node) {
+		node.getFingerTable().update(node.getId());
+	}
+
+	/**
+	 * Returns the successor if the key lies between the node and its
+	 * successor. Otherwise, if the node is responsible for the imaginary node
+	 * of the lookup, shifts the next digit of the key into the imaginary node
+	 * and returns the de Bruijn entry closest to it, and if not, returns the
+	 * successor closest to the imaginary node. If the closest de Bruijn entry
+	 * is the node itself, the digits are shifted in locally for as long as the
+	 * node is responsible for the imaginary node, so the node itself is never
+	 * returned. Entries marked suspect after a timeout are passed over.
+	 */
+	public Node nextHop(Node node, Lookup lookup) {
+		RoutingTable table = node.getFingerTable();
+		int size = node.getRing().ringMaxSize();
+		int id = node.getId();
+		int dataKey = lookup.getDataKey();
+		Node succ = table.getIthEntry(0);
+		if (Node.between(dataKey, id, succ.getId())) {
+			Node next = firstUnsuspected(table);
+			return next == null ? succ : next;
+		}
+		if (lookup.getImaginary() < 0)
+			start(node, lookup);
+		int imaginary = lookup.getImaginary();
+		int bits = lookup.getShiftBits();
+		while (bits > 0 && responsible(imaginary, id, succ.getId())) {
+			long shift = lookup.getKeyShift();
+			long digit = shift >>> (bits - digitBits);
+			imaginary = (int) ((((long) imaginary << digitBits) | digit)
+					& (size - 1));
+			bits -= digitBits;
+			lookup.setImaginary(imaginary, shift & ((1L << bits) - 1), bits);
+			Node next = closest(table, successors, table.size(), imaginary,
+					size);
+			if (next != node)
+				return next;
+		}
+		Node next = closest(table, 0, successors, imaginary, size);
+		return next == node ? succ : next;
+	}
+
+	/**
+	 * Returns the next active successor if the key lies between the node and
+	 * its successor, as the data of a dead successor is handed off to it,
+	 * otherwise the entry closest to the imaginary node of the lookup now that
+	 * the dead node is suspect.
+	 */
+	public Node alternateHop(Node node, Lookup lookup, Node dead) {
+		RoutingTable table = node.getFingerTable();
+		if (Node.between(lookup.getDataKey(), node.getId(), table
+				.getIthEntry(0).getId()))
+			return firstUnsuspected(table);
+		int target = lookup.getImaginary() < 0 ? lookup.getDataKey() : lookup
+				.getImaginary();
+		Node next = closest(table, 0, table.size(), target, node.getRing()
+				.ringMaxSize());
+		for (int i = 0; i < table.size(); i++) {
+			if (table.getIthEntry(i) == next && table.isSuspect(i))
+				return null;
+		}
+		return next;
+	}
+
+	/**
+	 * Picks the first imaginary node of a lookup starting at the given node:
+	 * the hash key the node is responsible for whose low bits hold the most
+	 * high digits of the key.
+	 * 
+	 * @param node
+	 *            the node the lookup starts at
+	 * @param lookup
+	 *            the Lookup object
+	 */
+	private void start(Node node, Lookup lookup) {
+		int b = node.getRing().getHashKeyLength();
+		int size = node.getRing().ringMaxSize();
+		int id = node.getId();
+		int succId = node.getFingerTable().getIthEntry(0).getId();
+		long key = lookup.getDataKey();
+		for (int shiftBits = 0;; shiftBits += digitBits) {
+			if (shiftBits >= b) {
+				lookup.setImaginary(id, key, shiftBits);
+				return;
+			}
+			// The top b - shiftBits bits of the key go into the low bits of
+			// the imaginary node, the remaining digits are shifted in.
+			int kept = b - shiftBits;
+			long low = (1L << kept) - 1;
+			long imaginary = (id & ~low) | (key >>> shiftBits);
+			if (imaginary < id)
+				imaginary += 1L << kept;
+			imaginary &= size - 1;
+			if (responsible((int) imaginary, id, succId)) {
+				lookup.setImaginary((int) imaginary, key
+						& ((1L << shiftBits) - 1), shiftBits);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Checks whether a node is responsible for an imaginary node, i.e. the
+	 * imaginary node lies between the node (inclusive) and its successor
+	 * (exclusive).
+	 * 
+	 * @param imaginary
+	 *            the hash key of the imaginary node
+	 * @param id
+	 *            the hash key of the node
+	 * @param succId
+	 *            the hash key of the successor of the node
+	 * @return true if the node is responsible, false otherwise
+	 */
+	private static boolean responsible(int imaginary, int id, int succId) {
+		return imaginary == id
+				|| (imaginary != succId && Node.between(imaginary, id, succId));
+	}
+
+	/**
+	 * Returns the entry in the given range of the table closest to the given
+	 * hash key without passing it, passing over the suspect entries, or the
+	 * first entry of the range if all are suspect.
+	 * 
+	 * @param table
+	 *            the routing table
+	 * @param from
+	 *            the first entry index of the range
+	 * @param to
+	 *            the entry index past the range
+	 * @param key
+	 *            the hash key
+	 * @param size
+	 *            the size of the ring
+	 * @return the Node object
+	 */
+	private static Node closest(RoutingTable table, int from, int to, int key,
+			int size) {
+		Node closest = null;
+		int closestDistance = size;
+		for (int i = from; i < to; i++) {
+			Node entry = table.getIthEntry(i);
+			if (entry == null || table.isSuspect(i))
+				continue;
+			int distance = (key - entry.getId() + size) % size;
+			if (distance < closestDistance) {
+				closest = entry;
+				closestDistance = distance;
+			}
+		}
+		return closest == null ? table.getIthEntry(from) : closest;
+	}
+
+	/**
+	 * Returns the first successor entry of the table that is not suspect.
+	 * 
+	 * @param table
+	 *            the routing table
+	 * @return the Node object, or null if all the successors are suspect
+	 */
+	private Node firstUnsuspected(RoutingTable table) {
+		for (int i = 0; i < successors; i++) {
+			if (!table.isSuspect(i))
+				return table.getIthEntry(i);
+		}
+		return null;
+	}
+}
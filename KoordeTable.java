@@ -0,0 +1,183 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+
+/**
+ * Class KoordeTable is the routing table of a node under Koorde routing. Its
+ * first entries are the successors of the node, the first one being the
+ * successor proper, followed by the de Bruijn entries: the predecessor of the
+ * hash key k times the node's, for a degree k, and the k - 1 nodes following
+ * it. All entries point to active nodes.
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+public class KoordeTable implements RoutingTable {
+	private Node[] table;
+	private boolean[] suspect;
+	private ChordRing ring;
+	private int degree;
+	private int successors;
+
+	/**
+	 * The entries last resolved, for the node and the membership version of
+	 * the ring they were resolved at.
+	 */
+	private Node[] resolved;
+	private int resolvedKey;
+	private long resolvedVersion;
+
+	/**
+	 * Construct a new KoordeTable object.
+	 * 
+	 * @param ring
+	 *            the ChordRing object
+	 * @param degree
+	 *            the number of de Bruijn entries
+	 * @param successors
+	 *            the number of successor entries
+	 */
+	public KoordeTable(ChordRing ring, int degree, int successors) {
+		this.ring = ring;
+		this.degree = degree;
+		this.successors = successors;
+		this.table = new Node[successors + degree];
+		this.suspect = new boolean[table.length];
+	}
+
+	public void update(int nodeKey) {
+		Node[] entries = resolved(nodeKey);
+		for (int i = 0; i < table.length; i++) {
+			table[i] = entries[i];
+			suspect[i] = false;
+		}
+	}
+
+	public boolean updateEntry(int nodeKey, int i) {
+		suspect[i] = false;
+		Node entry = resolve(nodeKey, i);
+		if (table[i] != entry) {
+			table[i] = entry;
+			return true;
+		}
+		return false;
+	}
+
+	public Node resolve(int nodeKey, int i) {
+		return resolved(nodeKey)[i];
+	}
+
+	/**
+	 * Returns the active nodes all the entries of the table of the given node
+	 * should point to, resolved once for as long as the membership of the
+	 * ring does not change, so that a round resolving the entries one by one
+	 * walks the ring only once.
+	 * 
+	 * @param nodeKey
+	 *            the hash key of the node owning the table
+	 * @return the entries of the table
+	 */
+	private Node[] resolved(int nodeKey) {
+		long version = ring.getMembershipVersion();
+		if (resolved == null || resolvedKey != nodeKey
+				|| resolvedVersion != version) {
+			resolved = entries(nodeKey);
+			resolvedKey = nodeKey;
+			resolvedVersion = version;
+		}
+		return resolved;
+	}
+
+	/**
+	 * Returns the active nodes all the entries of the table of the given node
+	 * should point to.
+	 * 
+	 * @param nodeKey
+	 *            the hash key of the node owning the table
+	 * @return the entries of the table
+	 */
+	private Node[] entries(int nodeKey) {
+		Node[] entries = new Node[table.length];
+		NavigableMap<Integer, Node> nodes = ring.getNodes();
+		List<Node> after = active(nodes.tailMap(nodeKey, false),
+				nodes.headMap(nodeKey, true), successors);
+		int target = (int) ((long) degree * nodeKey % ring.ringMaxSize());
+		List<Node> before = active(nodes.headMap(target, true)
+				.descendingMap(), nodes.tailMap(target, false).descendingMap(),
+				1);
+		Node first = before.isEmpty() ? null : before.get(0);
+		List<Node> deBruijn = first == null ? after : active(nodes.tailMap(
+				first.getId(), true), nodes.headMap(first.getId(), false),
+				degree);
+		for (int i = 0; i < successors; i++)
+			entries[i] = after.isEmpty() ? null : after.get(i % after.size());
+		for (int i = 0; i < degree; i++)
+			entries[successors + i] = deBruijn.isEmpty() ? null : deBruijn
+					.get(i % deBruijn.size());
+		return entries;
+	}
+
+	/**
+	 * Returns up to the given number of active nodes, in the iteration order
+	 * of the first part of the ring and wrapping around to the second part.
+	 * 
+	 * @param first
+	 *            the nodes from the start position to the end of the ring
+	 * @param second
+	 *            the nodes from the start of the ring to the start position
+	 * @param count
+	 *            the number of nodes wanted
+	 * @return the active nodes
+	 */
+	private static List<Node> active(NavigableMap<Integer, Node> first,
+			NavigableMap<Integer, Node> second, int count) {
+		List<Node> found = new ArrayList<Node>(count);
+		for (Node node : first.values()) {
+			if (found.size() == count)
+				return found;
+			if (node.isAlive())
+				found.add(node);
+		}
+		for (Node node : second.values()) {
+			if (found.size() == count)
+				return found;
+			if (node.isAlive())
+				found.add(node);
+		}
+		return found;
+	}
+
+	public int size() {
+		return this.table.length;
+	}
+
+	public Node getIthEntry(int i) {
+		return this.table[i];
+	}
+
+	public void setIthEntry(int i, Node node) {
+		this.table[i] = node;
+		this.suspect[i] = false;
+	}
+
+	public void markSuspect(Node node) {
+		for (int i = 0; i < table.length; i++) {
+			if (table[i] == node)
+				suspect[i] = true;
+		}
+	}
+
+	public boolean isSuspect(int i) {
+		return this.suspect[i];
+	}
+
+	/**
+	 * Returns the number of successor entries, the de Bruijn entries
+	 * following them.
+	 * 
+	 * @return the number of successor entries
+	 */
+	public int successors() {
+		return successors;
+	}
+}
@@ -0,0 +1,288 @@
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class Lookup represents a single query lookup travelling through the Chord
+ * ring. It carries the hash key being looked up together with the
+ * information needed to follow the lookup hop by hop, i.e. a unique id, the
+ * node it was initiated at, its start time and the number of hops made, and
+ * the hops that timed out on the way and were retried.
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+public class Lookup {
+	/**
+	 * The id given to the next lookup created. Lookups are created by the
+	 * shard threads of the network mode too, so ids are drawn atomically.
+	 */
+	private static final AtomicInteger nextId = new AtomicInteger();
+
+	/**
+	 * The unique id of the lookup.
+	 */
+	private int id;
+
+	/**
+	 * The hash key of the data being looked up.
+	 */
+	private int dataKey;
+
+	/**
+	 * The hash key of the node the lookup was initiated at.
+	 */
+	private int origin;
+
+	/**
+	 * The simulated time the lookup was initiated at.
+	 */
+	private double startTime;
+
+	/**
+	 * The number of hops the lookup has been forwarded.
+	 */
+	private int hops;
+
+	/**
+	 * The number of hops that timed out waiting for a dead node.
+	 */
+	private int timeouts;
+
+	/**
+	 * The number of hops retried through another node after a timeout.
+	 */
+	private int retries;
+
+	/**
+	 * The simulated time lost waiting for the hops that timed out.
+	 */
+	private double extraLatency;
+
+	/**
+	 * The number of hops between nodes of different leaf domains, and the
+	 * level of the outermost domain of the origin the lookup got to, when the
+	 * ring has domains.
+	 */
+	private int interDomainHops;
+	private int reach = Integer.MAX_VALUE;
+
+	/**
+	 * The imaginary node the lookup is currently routed through, for overlays
+	 * such as Koorde that route through imaginary nodes, or -1 if none yet.
+	 */
+	private int imaginary = -1;
+
+	/**
+	 * The digits of the hash key still to be shifted into the imaginary node,
+	 * and their number of bits.
+	 */
+	private long keyShift;
+	private int shiftBits;
+
+	/**
+	 * Construct a new Lookup object.
+	 * 
+	 * @param dataKey
+	 *            the hash key of the data being looked up
+	 * @param origin
+	 *            the hash key of the node the lookup is initiated at
+	 * @param startTime
+	 *            the simulated time the lookup is initiated at
+	 */
+	public Lookup(int dataKey, int origin, double startTime) {
+		this.id = nextId.getAndIncrement();
+		this.dataKey = dataKey;
+		this.origin = origin;
+		this.startTime = startTime;
+		this.hops = 0;
+	}
+
+	/**
+	 * Returns the unique id of the lookup.
+	 * 
+	 * @return the id of the lookup
+	 */
+	public int getId() {
+		return id;
+	}
+
+	/**
+	 * Returns the hash key of the data being looked up.
+	 * 
+	 * @return the hash key of the data
+	 */
+	public int getDataKey() {
+		return dataKey;
+	}
+
+	/**
+	 * Returns the hash key of the node the lookup was initiated at.
+	 * 
+	 * @return the hash key of the origin node
+	 */
+	public int getOrigin() {
+		return origin;
+	}
+
+	/**
+	 * Returns the simulated time the lookup was initiated at.
+	 * 
+	 * @return the start time of the lookup
+	 */
+	public double getStartTime() {
+		return startTime;
+	}
+
+	/**
+	 * Returns the number of hops the lookup has been forwarded.
+	 * 
+	 * @return the number of hops
+	 */
+	public int getHops() {
+		return hops;
+	}
+
+	/**
+	 * Records that the lookup has been forwarded to the next hop.
+	 */
+	public void hop() {
+		hops++;
+	}
+
+	/**
+	 * Records that a hop timed out waiting for a dead node.
+	 * 
+	 * @param delay
+	 *            the simulated time lost waiting for the node
+	 */
+	public void timedOut(double delay) {
+		timeouts++;
+		extraLatency += delay;
+	}
+
+	/**
+	 * Records that a hop that timed out is retried through another node.
+	 */
+	public void retry() {
+		retries++;
+	}
+
+	/**
+	 * Returns the number of hops that timed out waiting for a dead node.
+	 * 
+	 * @return the number of timeouts
+	 */
+	public int getTimeouts() {
+		return timeouts;
+	}
+
+	/**
+	 * Returns the number of hops retried through another node.
+	 * 
+	 * @return the number of retries
+	 */
+	public int getRetries() {
+		return retries;
+	}
+
+	/**
+	 * Returns the simulated time lost waiting for the hops that timed out.
+	 * 
+	 * @return the extra latency
+	 */
+	public double getExtraLatency() {
+		return extraLatency;
+	}
+
+	/**
+	 * Records that the lookup has been forwarded between the given domains.
+	 * 
+	 * @param hopLevel
+	 *            the level of the lowest domain the two nodes of the hop are
+	 *            in
+	 * @param originLevel
+	 *            the level of the lowest domain the next hop and the origin
+	 *            of the lookup are in
+	 * @param leafLevel
+	 *            the level of the leaf domains
+	 */
+	public void crossed(int hopLevel, int originLevel, int leafLevel) {
+		if (hopLevel < leafLevel)
+			interDomainHops++;
+		reach = Math.min(reach, originLevel);
+	}
+
+	/**
+	 * Returns the number of hops between nodes of different leaf domains.
+	 * 
+	 * @return the number of inter-domain hops
+	 */
+	public int getInterDomainHops() {
+		return interDomainHops;
+	}
+
+	/**
+	 * Returns the level of the outermost domain of the origin the lookup got
+	 * to, i.e. the lowest level of a domain shared by the origin and any node
+	 * the lookup was forwarded to.
+	 * 
+	 * @return the level, or Integer.MAX_VALUE if the lookup was not forwarded
+	 */
+	public int getReach() {
+		return reach;
+	}
+
+	/**
+	 * Sets the imaginary node the lookup is routed through, together with the
+	 * digits of the hash key still to be shifted into it.
+	 * 
+	 * @param imaginary
+	 *            the hash key of the imaginary node
+	 * @param keyShift
+	 *            the remaining digits of the hash key
+	 * @param shiftBits
+	 *            the number of bits of the remaining digits
+	 */
+	public void setImaginary(int imaginary, long keyShift, int shiftBits) {
+		this.imaginary = imaginary;
+		this.keyShift = keyShift;
+		this.shiftBits = shiftBits;
+	}
+
+	/**
+	 * Returns the imaginary node the lookup is routed through.
+	 * 
+	 * @return the hash key of the imaginary node, or -1 if none yet
+	 */
+	public int getImaginary() {
+		return imaginary;
+	}
+
+	/**
+	 * Returns the digits of the hash key still to be shifted into the
+	 * imaginary node.
+	 * 
+	 * @return the remaining digits
+	 */
+	public long getKeyShift() {
+		return keyShift;
+	}
+
+	/**
+	 * Returns the number of bits of the digits of the hash key still to be
+	 * shifted into the imaginary node.
+	 * 
+	 * @return the number of bits
+	 */
+	public int getShiftBits() {
+		return shiftBits;
+	}
+
+	/**
+	 * Returns the string representation of the Lookup.
+	 * 
+	 * @return the id and the hash key of the lookup as a String
+	 */
+	public String toString() {
+		return "#" + id + " (" + dataKey + ")";
+	}
+}
@@ -0,0 +1,66 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Class LookupFinishEvent is a JDK Flight Recorder event committed when a
+ * query lookup succeeds or fails at a node of the Chord ring.
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+@Name("chord.LookupFinish")
+@Label("Lookup Finish")
+@Category({ "Chord", "Lookup" })
+@Description("A query lookup succeeds or fails at a node")
+public class LookupFinishEvent extends Event {
+	@Label("Lookup Id")
+	int lookup;
+
+	@Label("Key")
+	int key;
+
+	@Label("Node Id")
+	int node;
+
+	@Label("Hops")
+	int hops;
+
+	@Label("Success")
+	boolean success;
+
+	@Label("Simulated Latency")
+	double simLatency;
+
+	@Label("Simulated Time")
+	double simTime;
+
+	/**
+	 * Commits a new event if the event is enabled in the recording.
+	 * 
+	 * @param lookup
+	 *            the Lookup object
+	 * @param node
+	 *            the hash key of the node the lookup finished at
+	 * @param success
+	 *            true if the lookup succeeded, false otherwise
+	 * @param simTime
+	 *            the current simulated time
+	 */
+	public static void emit(Lookup lookup, int node, boolean success,
+			double simTime) {
+		LookupFinishEvent event = new LookupFinishEvent();
+		if (event.isEnabled()) {
+			event.lookup = lookup.getId();
+			event.key = lookup.getDataKey();
+			event.node = node;
+			event.hops = lookup.getHops();
+			event.success = success;
+			event.simLatency = simTime - lookup.getStartTime();
+			event.simTime = simTime;
+			event.commit();
+		}
+	}
+}
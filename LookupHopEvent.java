@@ -0,0 +1,55 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Class LookupHopEvent is a JDK Flight Recorder event committed when a query
+ * lookup arrives at a node of the Chord ring.
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+@Name("chord.LookupHop")
+@Label("Lookup Hop")
+@Category({ "Chord", "Lookup" })
+@Description("A query lookup arrives at a node")
+public class LookupHopEvent extends Event {
+	@Label("Lookup Id")
+	int lookup;
+
+	@Label("Key")
+	int key;
+
+	@Label("Node Id")
+	int node;
+
+	@Label("Hop Index")
+	int hop;
+
+	@Label("Simulated Time")
+	double simTime;
+
+	/**
+	 * Commits a new event if the event is enabled in the recording.
+	 * 
+	 * @param lookup
+	 *            the Lookup object
+	 * @param node
+	 *            the hash key of the node the lookup arrived at
+	 * @param simTime
+	 *            the current simulated time
+	 */
+	public static void emit(Lookup lookup, int node, double simTime) {
+		LookupHopEvent event = new LookupHopEvent();
+		if (event.isEnabled()) {
+			event.lookup = lookup.getId();
+			event.key = lookup.getDataKey();
+			event.node = node;
+			event.hop = lookup.getHops();
+			event.simTime = simTime;
+			event.commit();
+		}
+	}
+}
@@ -0,0 +1,49 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Class LookupStartEvent is a JDK Flight Recorder event committed when a query
+ * lookup is initiated at a node of the Chord ring.
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+@Name("chord.LookupStart")
+@Label("Lookup Start")
+@Category({ "Chord", "Lookup" })
+@Description("A query lookup is initiated at a node")
+public class LookupStartEvent extends Event {
+	@Label("Lookup Id")
+	int lookup;
+
+	@Label("Key")
+	int key;
+
+	@Label("Node Id")
+	int node;
+
+	@Label("Simulated Time")
+	double simTime;
+
+	/**
+	 * Commits a new event if the event is enabled in the recording.
+	 * 
+	 * @param lookup
+	 *            the Lookup object
+	 * @param simTime
+	 *            the current simulated time
+	 */
+	public static void emit(Lookup lookup, double simTime) {
+		LookupStartEvent event = new LookupStartEvent();
+		if (event.isEnabled()) {
+			event.lookup = lookup.getId();
+			event.key = lookup.getDataKey();
+			event.node = lookup.getOrigin();
+			event.simTime = simTime;
+			event.commit();
+		}
+	}
+}
@@ -0,0 +1,47 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Class MembershipEvent is a JDK Flight Recorder event committed when a node
+ * joins or leaves the Chord ring.
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+@Name("chord.Membership")
+@Label("Node Join/Leave")
+@Category({ "Chord", "Membership" })
+@Description("A node joins or leaves the ring")
+public class MembershipEvent extends Event {
+	@Label("Node Id")
+	int node;
+
+	@Label("Joined")
+	boolean joined;
+
+	@Label("Simulated Time")
+	double simTime;
+
+	/**
+	 * Commits a new event if the event is enabled in the recording.
+	 * 
+	 * @param node
+	 *            the hash key of the node
+	 * @param joined
+	 *            true if the node joined, false if it left
+	 * @param simTime
+	 *            the current simulated time
+	 */
+	public static void emit(int node, boolean joined, double simTime) {
+		MembershipEvent event = new MembershipEvent();
+		if (event.isEnabled()) {
+			event.node = node;
+			event.joined = joined;
+			event.simTime = simTime;
+			event.commit();
+		}
+	}
+}
@@ -0,0 +1,46 @@
+/**
+ * Enum MessageType enumerates the kinds of messages exchanged between the
+ * nodes of a Chord ring. It is used to classify the traffic generated by the
+ * simulation into lookup traffic and ring maintenance traffic.
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+public enum MessageType {
+	/**
+	 * A query forwarded from one node to the next hop of the lookup.
+	 */
+	QUERY_FORWARD,
+
+	/**
+	 * A notification sent by a node to its successor about a possible new
+	 * predecessor.
+	 */
+	NOTIFY,
+
+	/**
+	 * A stabilization probe, i.e. a request for the successor's predecessor or
+	 * a liveness check of the predecessor, and its reply.
+	 */
+	STABILIZE,
+
+	/**
+	 * A request to resolve a finger table entry and its reply.
+	 */
+	FINGER_REFRESH,
+
+	/**
+	 * A transfer of data items from one node to another.
+	 */
+	DATA_TRANSFER;
+
+	/**
+	 * Checks whether this message type is part of the ring maintenance
+	 * traffic rather than the lookup traffic.
+	 * 
+	 * @return true if maintenance traffic, false otherwise
+	 */
+	public boolean isMaintenance() {
+		return this != QUERY_FORWARD;
+	}
+}
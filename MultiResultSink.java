@@ -0,0 +1,37 @@
+/**
+ * Class MultiResultSink writes the results to several sinks at once.
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+public class MultiResultSink implements ResultSink {
+	/**
+	 * The sinks the results are written to.
+	 */
+	private ResultSink[] sinks;
+
+	/**
+	 * Construct a new MultiResultSink object.
+	 * 
+	 * @param sinks
+	 *            the sinks the results are written to
+	 */
+	public MultiResultSink(ResultSink... sinks) {
+		this.sinks = sinks;
+	}
+
+	public void write(double... values) {
+		for (ResultSink sink : sinks)
+			sink.write(values);
+	}
+
+	public void flush() {
+		for (ResultSink sink : sinks)
+			sink.flush();
+	}
+
+	public void close() {
+		for (ResultSink sink : sinks)
+			sink.close();
+	}
+}
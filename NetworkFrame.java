@@ -0,0 +1,143 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Class NetworkFrame represents a message of the network mode as it is sent
+ * over the wire. Every frame has the same fixed layout of 28 bytes:
+ * 
+ * <PRE>
+ *  0  byte   type
+ *  1  byte   flag (success of a finished lookup)
+ *  2  short  hops
+ *  4  int    destination node id
+ *  8  int    key (data key, or predecessor id of a PREDECESSOR reply)
+ * 12  int    source node id
+ * 16  int    request id (lookup id or acknowledgement id)
+ * 20  long   start time of the request in nanoseconds
+ * </PRE>
+ * 
+ * Frames are mutable so a selector thread can decode every incoming datagram
+ * into the same object.
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+public class NetworkFrame {
+	/**
+	 * The number of bytes of a frame.
+	 */
+	public static final int SIZE = 28;
+
+	/**
+	 * A query forwarded to the next hop.
+	 */
+	public static final byte QUERY = 1;
+
+	/**
+	 * A finished lookup reported to the client.
+	 */
+	public static final byte DONE = 2;
+
+	/**
+	 * A request to a node to join the ring.
+	 */
+	public static final byte JOIN = 3;
+
+	/**
+	 * A notification of a possible new predecessor.
+	 */
+	public static final byte NOTIFY = 4;
+
+	/**
+	 * A request to a node to run the stabilization procedure.
+	 */
+	public static final byte STABILIZE = 5;
+
+	/**
+	 * A request for the predecessor of a node.
+	 */
+	public static final byte GET_PREDECESSOR = 6;
+
+	/**
+	 * The reply to a GET_PREDECESSOR request.
+	 */
+	public static final byte PREDECESSOR = 7;
+
+	/**
+	 * A finished join or stabilization reported to the client.
+	 */
+	public static final byte ACK = 8;
+
+	/**
+	 * A data item handed off to a new predecessor after a NOTIFY, one frame
+	 * per item, with the number of items of the handoff in the hops field.
+	 */
+	public static final byte DATA_TRANSFER = 9;
+
+	byte type;
+	byte flag;
+	short hops;
+	int destination;
+	int key;
+	int source;
+	int request;
+	long startNanos;
+
+	/**
+	 * Sets all the fields of the frame, with no hops and the flag cleared.
+	 * 
+	 * @param type
+	 *            the type of the frame
+	 * @param destination
+	 *            the destination node id
+	 * @param key
+	 *            the key
+	 * @param source
+	 *            the source node id
+	 * @param request
+	 *            the request id
+	 * @param startNanos
+	 *            the start time of the request in nanoseconds
+	 * @return this frame
+	 */
+	public NetworkFrame set(byte type, int destination, int key, int source,
+			int request, long startNanos) {
+		this.type = type;
+		this.flag = 0;
+		this.hops = 0;
+		this.destination = destination;
+		this.key = key;
+		this.source = source;
+		this.request = request;
+		this.startNanos = startNanos;
+		return this;
+	}
+
+	/**
+	 * Writes the frame at the position of the given buffer.
+	 * 
+	 * @param buffer
+	 *            the ByteBuffer object
+	 */
+	public void encode(ByteBuffer buffer) {
+		buffer.put(type).put(flag).putShort(hops).putInt(destination)
+				.putInt(key).putInt(source).putInt(request)
+				.putLong(startNanos);
+	}
+
+	/**
+	 * Reads the frame from the position of the given buffer.
+	 * 
+	 * @param buffer
+	 *            the ByteBuffer object
+	 */
+	public void decode(ByteBuffer buffer) {
+		type = buffer.get();
+		flag = buffer.get();
+		hops = buffer.getShort();
+		destination = buffer.getInt();
+		key = buffer.getInt();
+		source = buffer.getInt();
+		request = buffer.getInt();
+		startNanos = buffer.getLong();
+	}
+}
@@ -0,0 +1,339 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Class NetworkShard hosts a share of the nodes of the Chord ring in the
+ * network mode. It owns one UDP socket bound to the loopback interface and
+ * one selector thread, which receives the frames addressed to its nodes,
+ * runs the Node protocol for them and sends the resulting frames on. The
+ * state of a node is only touched by the thread of the shard hosting it:
+ * which nodes are active is read from the membership the ChordNetwork
+ * publishes, and the data a node hands off to another is sent to the shard
+ * hosting that node as DATA_TRANSFER frames.
+ * <P>
+ * The shard measures the time spent encoding, sending, receiving and
+ * decoding frames, so the real cost of a hop can be set against the
+ * simulated one.
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+public class NetworkShard implements Runnable {
+	/**
+	 * The size of the socket send and receive buffers in bytes.
+	 */
+	private static final int SOCKET_BUFFER = 4 << 20;
+
+	/**
+	 * The network the shard belongs to.
+	 */
+	private ChordNetwork network;
+
+	/**
+	 * The nodes of the Chord ring, by hash key.
+	 */
+	private Map<Integer, Node> nodes;
+
+	/**
+	 * The number of hops after which a lookup is considered failed.
+	 */
+	private int maxHops;
+
+	/**
+	 * The pool of buffers the frames are encoded into and received into.
+	 */
+	private BufferPool pool;
+
+	private Selector selector;
+	private DatagramChannel channel;
+	private InetSocketAddress address;
+	private Thread thread;
+	private volatile boolean running;
+
+	/**
+	 * The frame incoming datagrams are decoded into.
+	 */
+	private NetworkFrame in = new NetworkFrame();
+
+	/**
+	 * The frame outgoing datagrams are built in.
+	 */
+	private NetworkFrame out = new NetworkFrame();
+
+	/**
+	 * The number of data items received so far of the handoffs in progress
+	 * to the nodes of the shard, by request id and sending node.
+	 */
+	private Map<Long, Integer> transfers = new HashMap<Long, Integer>();
+
+	// Statistics, written by the shard thread only and read after stop().
+	long encodeNanos;
+	long sendNanos;
+	long receiveNanos;
+	long decodeNanos;
+	long sent;
+	long received;
+	long dropped;
+	long forwarded;
+
+	/**
+	 * Construct a new NetworkShard object and bind its socket to an
+	 * ephemeral port of the loopback interface.
+	 * 
+	 * @param network
+	 *            the network the shard belongs to
+	 * @param nodes
+	 *            the nodes of the Chord ring, by hash key
+	 * @param maxHops
+	 *            the number of hops after which a lookup fails
+	 * @param pool
+	 *            the pool of buffers
+	 * @throws IOException
+	 *             if the socket cannot be opened
+	 */
+	public NetworkShard(ChordNetwork network, Map<Integer, Node> nodes,
+			int maxHops, BufferPool pool) throws IOException {
+		this.network = network;
+		this.nodes = nodes;
+		this.maxHops = maxHops;
+		this.pool = pool;
+		this.selector = Selector.open();
+		this.channel = DatagramChannel.open();
+		channel.setOption(StandardSocketOptions.SO_RCVBUF, SOCKET_BUFFER);
+		channel.setOption(StandardSocketOptions.SO_SNDBUF, SOCKET_BUFFER);
+		channel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+		channel.configureBlocking(false);
+		channel.register(selector, SelectionKey.OP_READ);
+		this.address = (InetSocketAddress) channel.getLocalAddress();
+	}
+
+	/**
+	 * Returns the address of the socket of the shard.
+	 * 
+	 * @return the InetSocketAddress object
+	 */
+	public InetSocketAddress getAddress() {
+		return address;
+	}
+
+	/**
+	 * Starts the selector thread of the shard.
+	 */
+	public void start() {
+		running = true;
+		thread = new Thread(this, "shard-" + address.getPort());
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops the selector thread of the shard and closes its socket.
+	 * 
+	 * @throws IOException
+	 *             if the socket cannot be closed
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for the thread
+	 */
+	public void stop() throws IOException, InterruptedException {
+		running = false;
+		selector.wakeup();
+		thread.join();
+		channel.close();
+		selector.close();
+	}
+
+	/**
+	 * Receives and handles frames until the shard is stopped.
+	 */
+	public void run() {
+		try {
+			while (running) {
+				selector.select();
+				selector.selectedKeys().clear();
+				receiveAll();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Receives and handles all the datagrams waiting on the socket.
+	 * 
+	 * @throws IOException
+	 *             if the socket fails
+	 */
+	private void receiveAll() throws IOException {
+		ByteBuffer buffer = pool.acquire();
+		try {
+			while (true) {
+				buffer.clear();
+				long t0 = System.nanoTime();
+				SocketAddress from = channel.receive(buffer);
+				long t1 = System.nanoTime();
+				if (from == null)
+					break;
+				buffer.flip();
+				in.decode(buffer);
+				long t2 = System.nanoTime();
+				receiveNanos += t1 - t0;
+				decodeNanos += t2 - t1;
+				received++;
+				handle();
+			}
+		} finally {
+			pool.release(buffer);
+		}
+	}
+
+	/**
+	 * Runs the Node protocol for the frame just received.
+	 * 
+	 * @throws IOException
+	 *             if the socket fails
+	 */
+	private void handle() throws IOException {
+		Node node = nodes.get(in.destination);
+		switch (in.type) {
+		case NetworkFrame.QUERY:
+			int dataKey = in.key;
+			if (!node.isAlive()
+					|| (node.getId() == dataKey && !node.hasData(dataKey))) {
+				reply(NetworkFrame.DONE, false);
+			} else if (node.hasData(dataKey)) {
+				reply(NetworkFrame.DONE, true);
+			} else if (in.hops >= maxHops) {
+				reply(NetworkFrame.DONE, false);
+			} else {
+				Node next = node.nextHop(dataKey);
+				out.set(NetworkFrame.QUERY, next.getId(), dataKey, in.source,
+						in.request, in.startNanos);
+				out.hops = (short) (in.hops + 1);
+				send(network.addressOf(next.getId()));
+				forwarded++;
+			}
+			break;
+		case NetworkFrame.JOIN:
+			// The fingers are resolved from the published membership, since
+			// the nodes of the other shards are not read from this thread.
+			node.revive();
+			network.activate(node.getId());
+			network.resolveFingers(node);
+			out.set(NetworkFrame.NOTIFY, node.getSuccessor().getId(), 0,
+					node.getId(), in.request, in.startNanos);
+			send(network.addressOf(out.destination));
+			break;
+		case NetworkFrame.NOTIFY:
+			// The data handed off to the notifying node is sent to the shard
+			// hosting it, which acknowledges the request once it has stored
+			// all of it.
+			Map<Integer, Data> moved = node.acceptPredecessor(nodes
+					.get(in.source));
+			if (moved.isEmpty()) {
+				reply(NetworkFrame.ACK, true);
+				break;
+			}
+			int joiner = in.source;
+			for (int key : moved.keySet()) {
+				out.set(NetworkFrame.DATA_TRANSFER, joiner, key, node.getId(),
+						in.request, in.startNanos);
+				out.hops = (short) moved.size();
+				send(network.addressOf(joiner));
+			}
+			break;
+		case NetworkFrame.DATA_TRANSFER:
+			Data data = new Data(in.key);
+			data.setNode(node);
+			node.addData(data);
+			long transfer = ((long) in.request << 32)
+					| (in.source & 0xffffffffL);
+			Integer count = transfers.get(transfer);
+			int received = count == null ? 1 : count + 1;
+			if (received < in.hops) {
+				transfers.put(transfer, received);
+			} else {
+				transfers.remove(transfer);
+				reply(NetworkFrame.ACK, true);
+			}
+			break;
+		case NetworkFrame.STABILIZE:
+			out.set(NetworkFrame.GET_PREDECESSOR, node.getSuccessor().getId(),
+					0, node.getId(), in.request, in.startNanos);
+			send(network.addressOf(out.destination));
+			break;
+		case NetworkFrame.GET_PREDECESSOR:
+			Node predecessor = node.getPredecessor();
+			out.set(NetworkFrame.PREDECESSOR, in.source,
+					predecessor == null ? -1 : predecessor.getId(),
+					node.getId(), in.request, in.startNanos);
+			send(network.addressOf(out.destination));
+			break;
+		case NetworkFrame.PREDECESSOR:
+			Node x = in.key < 0 || !network.isActive(in.key) ? null : nodes
+					.get(in.key);
+			if (node.updateSuccessor(x)) {
+				out.set(NetworkFrame.NOTIFY, node.getSuccessor().getId(), 0,
+						node.getId(), in.request, in.startNanos);
+				send(network.addressOf(out.destination));
+			} else {
+				reply(NetworkFrame.ACK, true);
+			}
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Reports the request of the frame just received as finished to the
+	 * client.
+	 * 
+	 * @param type
+	 *            DONE for a lookup, ACK for a join or stabilization
+	 * @param success
+	 *            true if the request succeeded, false otherwise
+	 * @throws IOException
+	 *             if the socket fails
+	 */
+	private void reply(byte type, boolean success) throws IOException {
+		out.set(type, in.source, in.key, in.destination, in.request,
+				in.startNanos);
+		out.flag = (byte) (success ? 1 : 0);
+		out.hops = in.hops;
+		send(network.getClientAddress());
+	}
+
+	/**
+	 * Encodes the outgoing frame into a pooled buffer and sends it.
+	 * 
+	 * @param to
+	 *            the address of the receiving socket
+	 * @throws IOException
+	 *             if the socket fails
+	 */
+	private void send(SocketAddress to) throws IOException {
+		ByteBuffer buffer = pool.acquire();
+		long t0 = System.nanoTime();
+		out.encode(buffer);
+		buffer.flip();
+		long t1 = System.nanoTime();
+		int written = channel.send(buffer, to);
+		long t2 = System.nanoTime();
+		pool.release(buffer);
+		encodeNanos += t1 - t0;
+		sendNanos += t2 - t1;
+		if (written == 0)
+			dropped++;
+		else
+			sent++;
+	}
+}
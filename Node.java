@@ -1,4 +1,6 @@
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -22,6 +24,17 @@ public class Node implements Comparable<Node> {
 	 */
 	public static boolean verbose;
 
+	/**
+	 * The number of bits of the Bloom filter summarizing the hash keys of the
+	 * data stored on every node, or 0 to keep no filter.
+	 */
+	public static int bloomBits;
+
+	/**
+	 * The number of bits set per key in the Bloom filters.
+	 */
+	public static int bloomHashes = 3;
+
 	/**
 	 * The hash key of a Node in the Chord Ring.
 	 */
@@ -49,10 +62,11 @@ public class Node implements Comparable<Node> {
 	private ExponentialPrng queryProcTimes;
 
 	/**
-	 * The finger table of the node containing entries of the nodes
-	 * corresponding to certain nodes in the Chord ring.
+	 * The routing table of the node containing entries of the nodes
+	 * corresponding to certain nodes in the Chord ring, its finger table when
+	 * routing the Chord way.
 	 */
-	private FingerTable fingerTable;
+	private RoutingTable fingerTable;
 
 	/**
 	 * The predecessor node of this node in the Chord ring.
@@ -74,11 +88,52 @@ public class Node implements Comparable<Node> {
 	 */
 	private ListSeries lookupSeries;
 
+	/**
+	 * The Bloom filter summarizing the hash keys of the data stored on this
+	 * node, or null if the node keeps no filter.
+	 */
+	private BloomFilter bloom;
+
+	/**
+	 * The copies of the Bloom filters of the successor and fingers of this
+	 * node, piggybacked on their answers when it last stabilized, or null if
+	 * the node keeps no filter.
+	 */
+	private Map<Node, BloomFilter> summaries;
+
+	/**
+	 * The predecessors the successor and fingers reported along with their
+	 * Bloom filters.
+	 */
+	private Map<Node, Node> summaryPredecessors;
+
+	/**
+	 * A flag indicating whether the predecessor was found active when the
+	 * node last checked it.
+	 */
+	private boolean predecessorChecked;
+
+	/**
+	 * The physical host running this node, or null if none.
+	 */
+	private Host host;
+
+	/**
+	 * The number of lookups processed by this node.
+	 */
+	private long queryLoad;
+
 	/**
 	 * A list containing the hash keys of queries looked up by this Node.
 	 */
 	private List<Integer> seenQueries = new ArrayList<Integer>();
 
+	/**
+	 * The imaginary node the last query looked up by this Node was routed
+	 * through, or -1 if none.
+	 */
+	private int seenImaginary = -1;
+
 	/**
 	 * Construct a new Node object with the supplied information.
 	 * 
@@ -100,11 +155,16 @@ public class Node implements Comparable<Node> {
 		this.sim = sim;
 		this.queryProcTimes = queryProcTimes;
 		this.dataMap = new HashMap<Integer, Data>();
-		this.fingerTable = new FingerTable(ring);
+		this.fingerTable = ring.getRouting().createTable(ring, this);
 		this.predecessor = null;
 		this.successor = this;
 		this.isAlive = true;
 		this.lookupSeries = lookupSeries;
+		if (bloomBits > 0) {
+			this.bloom = new BloomFilter(bloomBits, bloomHashes);
+			this.summaries = new HashMap<Node, BloomFilter>();
+			this.summaryPredecessors = new HashMap<Node, Node>();
+		}
 	}
 
 	/**
@@ -115,47 +175,116 @@ public class Node implements Comparable<Node> {
 	 * @return true if object added successfully, false otherwise
 	 */
 	public boolean addData(Data data) {
+		if (bloom != null)
+			bloom.add(data.hashCode());
 		return (this.dataMap.put(data.hashCode(), data) == null);
 	}
 
+	/**
+	 * Adds a batch of data items to the Node's dataMap and Bloom filter, as
+	 * when the ring is bulk loaded. The items are given as a range of an
+	 * array; a later item with the same hash key replaces an earlier one.
+	 * 
+	 * @param data
+	 *            the array of Data objects
+	 * @param from
+	 *            the index of the first item of the batch (inclusive)
+	 * @param to
+	 *            the index of the last item of the batch (exclusive)
+	 * @return the number of new hash keys stored
+	 */
+	public int addAllData(Data[] data, int from, int to) {
+		int added = 0;
+		for (int i = from; i < to; i++) {
+			Data item = data[i];
+			item.setNode(this);
+			if (bloom != null)
+				bloom.add(item.hashCode());
+			if (dataMap.put(item.hashCode(), item) == null)
+				added++;
+		}
+		return added;
+	}
+
 	/**
 	 * Joins the Chord ring this Node belongs to, updates its finger table
 	 * entries and successor node and notifies its successor about its arrival.
 	 */
 	public void join() {
 		this.isAlive = true;
-		this.fingerTable.update(id);
+		fixFingers();
 		this.successor = this.fingerTable.getIthEntry(0);
+		trace(TraceRecorder.SUCCESSOR, successor.id, -1, -1, 0);
+		send(MessageType.NOTIFY, 1, 0);
 		successor.notify(this);
 	}
 
 	/**
 	 * Gets notified by a node to update the predecessor. Called when a new node
 	 * joins between the current node and its predecessor. Also, the data
-	 * belonging to the newly join node is transferred to the node.
+	 * belonging to the newly join node, i.e. the data with hash keys outside
+	 * the range between the new predecessor (exclusive) and this node
+	 * (inclusive), is transferred to the node.
 	 * 
 	 * @param node
 	 */
 	public void notify(Node node) {
-		if (predecessor == null || (predecessor.id < node.id && node.id < id)) {
+		Map<Integer, Data> moved = acceptPredecessor(node);
+		if (!moved.isEmpty())
+			node.copyData(moved);
+	}
+
+	/**
+	 * Gets notified by a node to update the predecessor, like notify(), but
+	 * only removes the data belonging to the new predecessor from this node
+	 * and returns it, without storing it on the predecessor. Used where the
+	 * predecessor is run by another thread, so the data is delivered to it
+	 * as a message of its own.
+	 * 
+	 * @param node
+	 *            the notifying node
+	 * @return the data handed off to the node, empty if none
+	 */
+	public Map<Integer, Data> acceptPredecessor(Node node) {
+		HashMap<Integer, Data> moved = new HashMap<Integer, Data>();
+		if (node == this)
+			return moved;
+		if (predecessor == null || between(node.id, predecessor.id, id)) {
 			predecessor = node;
-			HashMap<Integer, Data> tempMap = new HashMap<Integer, Data>();
-			tempMap.putAll(dataMap);
-			for (int key : tempMap.keySet()) {
-				if (key <= node.id) {
-					dataMap.remove(key);
-				}
+			predecessorChecked = false;
+			trace(TraceRecorder.PREDECESSOR, node.id, -1, -1, 0);
+			for (Map.Entry<Integer, Data> entry : dataMap.entrySet()) {
+				if (!between(entry.getKey(), node.id, id))
+					moved.put(entry.getKey(), entry.getValue());
+			}
+			if (!moved.isEmpty()) {
+				dataMap.keySet().removeAll(moved.keySet());
+				rebuildBloom();
+				DataHandoffEvent.emit(id, node.id, moved.size(), sim.time());
+				trace(TraceRecorder.HANDOFF, node.id, -1, -1, moved.size());
 			}
 		}
+		return moved;
 	}
 
 	/**
 	 * Starts the stabilization procedure for the current node.
 	 */
 	public void start() {
+		StabilizeEvent event = new StabilizeEvent();
+		event.begin();
+		Node oldSuccessor = successor;
+		trace(TraceRecorder.STABILIZE, -1, -1, -1, 0);
 		stabilize();
 		fixFingers();
 		checkPredecessor();
+		updateSummaries();
+		if (event.shouldCommit()) {
+			event.node = id;
+			event.successorChanged = successor != oldSuccessor;
+			event.simTime = sim.time();
+			event.commit();
+		}
 	}
 
 	/**
@@ -164,27 +293,93 @@ public class Node implements Comparable<Node> {
 	 * this node.
 	 */
 	public void stabilize() {
-		Node x = successor.predecessor;
-		if (x != null && id < x.id && x.id < successor.id) {
-			successor = x;
+		send(MessageType.STABILIZE, 0, 0);
+		send(MessageType.STABILIZE, 1, 0);
+		if (updateSuccessor()) {
+			send(MessageType.NOTIFY, 1, 0);
 			successor.notify(this);
 		}
 	}
 
 	/**
-	 * Fixes the finger table entries as a part of maintaining updated
+	 * Adopts the predecessor of the successor as the new successor if it lies
+	 * between this node and the successor.
+	 * 
+	 * @return true if the successor changed, false otherwise
+	 */
+	public boolean updateSuccessor() {
+		return updateSuccessor(successor.predecessor);
+	}
+
+	/**
+	 * Adopts the given predecessor of the successor as the new successor if
+	 * it is active and lies between this node and the successor, wrapping
+	 * around zero.
+	 * 
+	 * @param x
+	 *            the predecessor of the successor, or null if unknown
+	 * @return true if the successor changed, false otherwise
+	 */
+	public boolean updateSuccessor(Node x) {
+		if (x != null && x != successor && x != this && x.isAlive
+				&& between(x.id, id, successor.id)) {
+			successor = x;
+			trace(TraceRecorder.SUCCESSOR, x.id, -1, -1, 0);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Fixes the routing table entries as a part of maintaining updated
 	 * information about the Chord ring.
 	 */
 	public void fixFingers() {
-		this.fingerTable.update(id);
+		ring.getRouting().maintain(this);
+		for (int i = 0; i < fingerTable.size(); i++) {
+			send(MessageType.FINGER_REFRESH, 1, 0);
+			send(MessageType.FINGER_REFRESH, 1, 0);
+		}
 	}
 
 	/**
 	 * Checks if the predecessor node is alive or not.
 	 */
 	public void checkPredecessor() {
-		if (predecessor != null && !predecessor.isAlive)
-			predecessor = null;
+		predecessorChecked = false;
+		if (predecessor != null) {
+			send(MessageType.STABILIZE, 0, 0);
+			if (!predecessor.isAlive) {
+				predecessor = null;
+				trace(TraceRecorder.PREDECESSOR, -1, -1, -1, 0);
+			} else {
+				send(MessageType.STABILIZE, 0, 0);
+				predecessorChecked = true;
+			}
+		}
+	}
+
+	/**
+	 * Keeps the Bloom filters and predecessors the active successor and
+	 * fingers of this node piggyback on their answers to the stabilization
+	 * procedure, in place of the ones kept so far.
+	 */
+	private void updateSummaries() {
+		if (bloom == null)
+			return;
+		summaries.clear();
+		summaryPredecessors.clear();
+		List<Node> neighbors = new ArrayList<Node>();
+		neighbors.add(successor);
+		for (int i = 0; i < fingerTable.size(); i++)
+			neighbors.add(fingerTable.getIthEntry(i));
+		for (Node n : neighbors) {
+			if (n == null || n == this || !n.isAlive || n.predecessor == null
+					|| summaries.containsKey(n))
+				continue;
+			summaries.put(n, new BloomFilter(n.bloom));
+			summaryPredecessors.put(n, n.predecessor);
+		}
 	}
 
 	/**
@@ -194,22 +389,224 @@ public class Node implements Comparable<Node> {
 	 * table information.
 	 */
 	public void changeState() {
+		changeState(successor);
+	}
+
+	/**
+	 * Changes the current state of the node in the Chord ring. If the node
+	 * turns inactive, then it copies all its data to the given node. If the
+	 * node turns active, then calls the join() method to update its finger
+	 * table information.
+	 * 
+	 * @param heir
+	 *            the node taking the data over if this node turns inactive,
+	 *            usually its successor
+	 */
+	public void changeState(Node heir) {
 		if (isAlive) {
 			isAlive = false;
-			if (!dataMap.isEmpty()) {
-				successor.copyData(dataMap);
+			MembershipEvent.emit(id, false, sim.time());
+			ring.membershipChanged();
+			trace(TraceRecorder.LEAVE, -1, -1, -1, 0);
+			if (!dataMap.isEmpty() && heir != this) {
+				heir.copyData(dataMap);
+				DataHandoffEvent.emit(id, heir.id, dataMap.size(), sim.time());
+				trace(TraceRecorder.HANDOFF, heir.id, -1, -1, dataMap.size());
 				if (verbose) {
 					System.err.printf("%.3f %s", sim.time(), ": ");
 					System.err.println(this + " copied " + dataMap + " to "
-							+ successor);
+							+ heir);
 				}
 			}
 		} else {
 			isAlive = true;
+			MembershipEvent.emit(id, true, sim.time());
+			ring.membershipChanged();
+			trace(TraceRecorder.JOIN, -1, -1, -1, 0);
 			join();
 		}
 	}
 
+	/**
+	 * Fails the node abruptly, as part of a correlated failure. Unlike
+	 * changeState(), the node neither hands its data off nor notifies any
+	 * other node; the ring is left to be repaired.
+	 */
+	public void fail() {
+		if (!isAlive)
+			return;
+		isAlive = false;
+		MembershipEvent.emit(id, false, sim.time());
+		ring.membershipChanged();
+		trace(TraceRecorder.LEAVE, -1, -1, -1, 0);
+	}
+
+	/**
+	 * Revives a failed node. Unlike changeState(), the node does not join the
+	 * ring on its own; its successor, predecessor and finger table are set
+	 * by the repair of the ring.
+	 */
+	public void revive() {
+		if (isAlive)
+			return;
+		isAlive = true;
+		MembershipEvent.emit(id, true, sim.time());
+		ring.membershipChanged();
+		trace(TraceRecorder.JOIN, -1, -1, -1, 0);
+	}
+
+	/**
+	 * Hands all the data stored on this node off to the given node, leaving
+	 * this node empty.
+	 * 
+	 * @param node
+	 *            the node taking the data over
+	 * @return the number of data items handed off
+	 */
+	public int handOffData(Node node) {
+		int moved = dataMap.size();
+		if (moved > 0) {
+			node.copyData(dataMap);
+			DataHandoffEvent.emit(id, node.id, moved, sim.time());
+			trace(TraceRecorder.HANDOFF, node.id, -1, -1, moved);
+			dataMap.clear();
+			if (bloom != null)
+				bloom.clear();
+		}
+		return moved;
+	}
+
+	/**
+	 * Takes over from the given node the data this node is responsible for,
+	 * i.e. the data with hash keys between the predecessor of this node
+	 * (exclusive) and this node (inclusive).
+	 * 
+	 * @param node
+	 *            the node currently storing the data, usually the successor
+	 * @return the number of data items taken over
+	 */
+	public int reclaimData(Node node) {
+		int from = predecessor == null ? node.id : predecessor.id;
+		Map<Integer, Data> taken = new HashMap<Integer, Data>();
+		for (Map.Entry<Integer, Data> entry : node.dataMap.entrySet()) {
+			if (between(entry.getKey(), from, id))
+				taken.put(entry.getKey(), entry.getValue());
+		}
+		if (!taken.isEmpty()) {
+			node.dataMap.keySet().removeAll(taken.keySet());
+			node.rebuildBloom();
+			node.send(MessageType.DATA_TRANSFER, 0, taken.size());
+			copyKeys(taken);
+			DataHandoffEvent.emit(node.id, id, taken.size(), sim.time());
+			node.trace(TraceRecorder.HANDOFF, id, -1, -1, taken.size());
+		}
+		return taken.size();
+	}
+
+	/**
+	 * Returns the data items stored on this node whose hash keys lie in the
+	 * interval of the ring from one hash key (inclusive) to another
+	 * (exclusive), wrapping around zero, in clockwise order from the start of
+	 * the interval. If both ends are equal the interval is the whole ring.
+	 * 
+	 * @param from
+	 *            the start of the interval, inclusive
+	 * @param to
+	 *            the end of the interval, exclusive
+	 * @return the list of Data objects
+	 */
+	public List<Data> scan(final int from, int to) {
+		final int maxSize = ring.ringMaxSize();
+		int last = (to - 1 + maxSize) % maxSize;
+		List<Data> slice = new ArrayList<Data>();
+		for (Map.Entry<Integer, Data> entry : dataMap.entrySet()) {
+			if (between(entry.getKey(), (from - 1 + maxSize) % maxSize, last))
+				slice.add(entry.getValue());
+		}
+		Collections.sort(slice, new Comparator<Data>() {
+			public int compare(Data x, Data y) {
+				int dx = (x.hashCode() - from + maxSize) % maxSize;
+				int dy = (y.hashCode() - from + maxSize) % maxSize;
+				return dx - dy;
+			}
+		});
+		return slice;
+	}
+
+	/**
+	 * Checks whether the given hash key lies in the interval of the ring from
+	 * one hash key (exclusive) to another (inclusive), going clockwise and
+	 * wrapping around zero. If both ends are equal the interval is the whole
+	 * ring.
+	 * 
+	 * @param key
+	 *            the hash key
+	 * @param from
+	 *            the start of the interval, exclusive
+	 * @param to
+	 *            the end of the interval, inclusive
+	 * @return true if the key lies in the interval, false otherwise
+	 */
+	public static boolean between(int key, int from, int to) {
+		if (from < to)
+			return from < key && key <= to;
+		return from < key || key <= to;
+	}
+
+	/**
+	 * Sets the successor of this node, as part of a repair of the ring.
+	 * 
+	 * @param node
+	 *            the successor Node object
+	 */
+	public void setSuccessor(Node node) {
+		if (successor != node) {
+			successor = node;
+			trace(TraceRecorder.SUCCESSOR, node.id, -1, -1, 0);
+		}
+	}
+
+	/**
+	 * Sets the predecessor of this node, as part of a repair of the ring.
+	 * 
+	 * @param node
+	 *            the predecessor Node object, or null if unknown
+	 */
+	public void setPredecessor(Node node) {
+		if (predecessor != node) {
+			predecessor = node;
+			predecessorChecked = false;
+			trace(TraceRecorder.PREDECESSOR, node == null ? -1 : node.id, -1,
+					-1, 0);
+		}
+	}
+
+	/**
+	 * Leaves the Chord ring for good. The node hands all its data off to its
+	 * successor and tells its predecessor and successor about each other, so
+	 * only these two neighbors are updated; the fingers pointing to the node
+	 * are fixed by the stabilization of the other nodes.
+	 */
+	public void leave() {
+		if (isAlive) {
+			isAlive = false;
+			MembershipEvent.emit(id, false, sim.time());
+			ring.membershipChanged();
+			trace(TraceRecorder.LEAVE, -1, -1, -1, 0);
+		}
+		if (successor == this)
+			return;
+		handOffData(successor);
+		if (predecessor != null && predecessor.successor == this) {
+			send(MessageType.NOTIFY, 1, 0);
+			predecessor.setSuccessor(successor);
+		}
+		if (successor.predecessor == this) {
+			send(MessageType.NOTIFY, 1, 0);
+			successor.setPredecessor(predecessor);
+		}
+	}
+
 	/**
 	 * Stores a collection of Data objects in the current Node's dataMap.
 	 * 
@@ -217,7 +614,163 @@ public class Node implements Comparable<Node> {
 	 *            the collection of Data objects.
 	 */
 	public void copyData(Map<Integer, Data> data) {
+		send(MessageType.DATA_TRANSFER, 0, data.size());
+		copyKeys(data);
+	}
+
+	/**
+	 * Stores a collection of Data objects in the dataMap and the Bloom filter
+	 * of the current Node.
+	 * 
+	 * @param data
+	 *            the collection of Data objects.
+	 */
+	private void copyKeys(Map<Integer, Data> data) {
 		this.dataMap.putAll(data);
+		if (bloom != null)
+			for (int key : data.keySet())
+				bloom.add(key);
+	}
+
+	/**
+	 * Rebuilds the Bloom filter of the current Node from its dataMap, after
+	 * data was removed from it.
+	 */
+	private void rebuildBloom() {
+		if (bloom == null)
+			return;
+		bloom.clear();
+		for (int key : dataMap.keySet())
+			bloom.add(key);
+	}
+
+	/**
+	 * Checks whether the current node might store the data with the given
+	 * hash key, according to its Bloom filter.
+	 * 
+	 * @param dataKey
+	 *            the hash key of the data
+	 * @return false if the data is certainly not stored, true otherwise
+	 */
+	public boolean mightHaveData(int dataKey) {
+		return bloom == null || bloom.mightContain(dataKey);
+	}
+
+	/**
+	 * Returns the Bloom filter of the current node.
+	 * 
+	 * @return the BloomFilter object, or null if the node keeps no filter
+	 */
+	public BloomFilter getBloomFilter() {
+		return bloom;
+	}
+
+	/**
+	 * Returns the memory taken by the copies of the Bloom filters of the
+	 * successor and fingers kept by the current node.
+	 * 
+	 * @return the number of bytes, 0 if the node keeps no filter
+	 */
+	public int getSummaryBytes() {
+		int bytes = 0;
+		if (summaries != null)
+			for (BloomFilter summary : summaries.values())
+				bytes += summary.sizeBytes();
+		return bytes;
+	}
+
+	/**
+	 * Checks whether the data with the given hash key is known not to be
+	 * stored, because the node responsible for it is this node, which does
+	 * not store it and has checked its predecessor, or the successor or a
+	 * finger whose Bloom filter, as of the last stabilization, rules it out.
+	 * Only what the node learned itself is used, so a summary may be stale.
+	 * Always false if the nodes keep no Bloom filters.
+	 * 
+	 * @param dataKey
+	 *            the hash key of the data, not stored on this node
+	 * @return true if the data is certainly not stored, false otherwise
+	 */
+	public boolean knownAbsent(int dataKey) {
+		if (bloom == null)
+			return false;
+		if (predecessorChecked && predecessor != null
+				&& between(dataKey, predecessor.id, id))
+			return true;
+		for (Map.Entry<Node, BloomFilter> entry : summaries.entrySet()) {
+			Node n = entry.getKey();
+			if (between(dataKey, summaryPredecessors.get(n).id, n.id))
+				return !entry.getValue().mightContain(dataKey);
+		}
+		return false;
+	}
+
+	/**
+	 * Checks whether the current node stores the data with the given hash
+	 * key.
+	 * 
+	 * @param dataKey
+	 *            the hash key of the data
+	 * @return true if the data is stored, false otherwise
+	 */
+	public boolean hasData(int dataKey) {
+		return dataMap.containsKey(dataKey);
+	}
+
+	/**
+	 * Returns the number of data items stored on the current node.
+	 * 
+	 * @return the number of data items
+	 */
+	public int getDataCount() {
+		return dataMap.size();
+	}
+
+	/**
+	 * Returns the number of lookups processed by the current node, whether
+	 * answered or forwarded.
+	 * 
+	 * @return the query load of the node
+	 */
+	public long getQueryLoad() {
+		return queryLoad;
+	}
+
+	/**
+	 * Sets the physical host running this node.
+	 * 
+	 * @param host
+	 *            the Host object
+	 */
+	public void setHost(Host host) {
+		this.host = host;
+	}
+
+	/**
+	 * Returns the physical host running this node.
+	 * 
+	 * @return the Host object, or null if none
+	 */
+	public Host getHost() {
+		return host;
+	}
+
+	/**
+	 * Returns the successor node of this node in the Chord ring.
+	 * 
+	 * @return the successor Node object
+	 */
+	public Node getSuccessor() {
+		return successor;
+	}
+
+	/**
+	 * Returns the predecessor node of this node in the Chord ring.
+	 * 
+	 * @return the predecessor Node object, or null if unknown
+	 */
+	public Node getPredecessor() {
+		return predecessor;
 	}
 
 	/**
@@ -250,14 +803,61 @@ public class Node implements Comparable<Node> {
 	}
 
 	/**
-	 * Returns the FingerTable of this Node.
+	 * Returns the routing table of this Node, its FingerTable when routing the
+	 * Chord way.
 	 * 
-	 * @return the FingerTable object
+	 * @return the RoutingTable object
 	 */
-	public FingerTable getFingerTable() {
+	public RoutingTable getFingerTable() {
 		return this.fingerTable;
 	}
 
+	/**
+	 * Returns the Chord ring this Node belongs to.
+	 * 
+	 * @return the ChordRing object
+	 */
+	public ChordRing getRing() {
+		return this.ring;
+	}
+
+	/**
+	 * Accounts a message sent by this node in the ring's traffic monitor, if
+	 * any.
+	 * 
+	 * @param type
+	 *            the type of the message
+	 * @param keys
+	 *            the number of hash keys carried by the message
+	 * @param items
+	 *            the number of data items carried by the message
+	 */
+	private void send(MessageType type, int keys, int items) {
+		TrafficMonitor traffic = ring.getTrafficMonitor();
+		if (traffic != null)
+			traffic.message(type, sim.time(), keys, items);
+	}
+
+	/**
+	 * Records an event of this node in the ring's trace recorder, if any.
+	 * 
+	 * @param type
+	 *            the record type
+	 * @param peer
+	 *            the id of the peer node, or -1
+	 * @param key
+	 *            the data key, or -1
+	 * @param lookup
+	 *            the lookup id, or -1
+	 * @param aux
+	 *            the auxiliary value
+	 */
+	private void trace(int type, int peer, int key, int lookup, int aux) {
+		TraceRecorder trace = ring.getTraceRecorder();
+		if (trace != null)
+			trace.record(sim.time(), type, id, peer, key, lookup, aux);
+	}
+
 	public int getId() {
 		return id;
 	}
@@ -270,14 +870,32 @@ public class Node implements Comparable<Node> {
 	 * @param dataKey
 	 *            the hash key of the Data object being queried.
 	 */
-	public void query(final int dataKey) {
+	public void query(int dataKey) {
+		Lookup lookup = new Lookup(dataKey, id, sim.time());
+		LookupStartEvent.emit(lookup, sim.time());
+		trace(TraceRecorder.LOOKUP_START, -1, dataKey, lookup.getId(), 0);
+		query(lookup);
+	}
+
+	/**
+	 * Processes a lookup that has arrived at this node. The lookup succeeds if
+	 * the node stores the data being looked up, otherwise it is forwarded to
+	 * the appropriate node in the finger table.
+	 * 
+	 * @param lookup
+	 *            the Lookup object
+	 */
+	public void query(final Lookup lookup) {
+		final int dataKey = lookup.getDataKey();
+		LookupHopEvent.emit(lookup, id, sim.time());
+		trace(TraceRecorder.HOP, -1, dataKey, lookup.getId(), lookup.getHops());
 		// Lookup failure if the current node is inactive.
 		if (!isAlive) {
 			if (verbose) {
 				System.out.println("Node " + this
 						+ " is inactive. Lookup failed!");
 			}
-			lookupSeries.add(0);
+			finish(lookup, false);
 			return;
 		}
 		// Lookup failure if the data key is equal to the current node's hash
@@ -288,22 +906,26 @@ public class Node implements Comparable<Node> {
 			if (verbose) {
 				System.out.println("Node " + this + ": Lookup failed!");
 			}
-			lookupSeries.add(0);
+			finish(lookup, false);
 			return;
 		}
 		// Lookup failure if the current node is being looked up for the same
-		// query.
+		// query in the same routing state. A Koorde lookup may pass the node
+		// again through another imaginary node.
 		if (!seenQueries.isEmpty()
-				&& seenQueries.get(seenQueries.size() - 1) == dataKey) {
+				&& seenQueries.get(seenQueries.size() - 1) == dataKey
+				&& seenImaginary == lookup.getImaginary()) {
 			if (verbose) {
 				System.out.println("I looked it twice!");
 				System.out.println("Node " + this + ": Lookup failed!");
 			}
-			lookupSeries.add(0);
+			finish(lookup, false);
 			return;
 		}
 
 		seenQueries.add(dataKey);
+		seenImaginary = lookup.getImaginary();
+		queryLoad++;
 
 		if (verbose)
 			System.out.println("Node " + this + ": Received Query " + dataKey);
@@ -312,68 +934,161 @@ public class Node implements Comparable<Node> {
 		if (dataMap.containsKey(dataKey)) {
 			if (verbose)
 				System.out.println("Node " + this + ": Lookup success!");
-			lookupSeries.add(1.0);
+			finish(lookup, true);
+			return;
+		}
+		// Lookup failure if the node responsible for the data key, this node,
+		// its successor or a finger, certainly does not store the data.
+		else if (knownAbsent(dataKey)) {
+			if (verbose) {
+				System.out.println("Node " + this
+						+ ": Data not stored. Lookup failed!");
+			}
+			finish(lookup, false);
 			return;
 		}
 		// Forward the query to the node with the largest hash key lesser than
 		// the data hash key.
 		else {
-			if (dataKey > id) {
-				final Node succs = fingerTable.getIthEntry(0);
-				if (dataKey < succs.getId() || succs.getId() < id) {
-					sim.doAfter(queryProcTimes.next(), new Event() {
+			forward(lookup, ring.getRouting().nextHop(this, lookup));
+			return;
+		}
+	}
 
-						@Override
-						public void perform() {
-							if (verbose)
-								System.out.println("*** Forwarding Query "
-										+ dataKey + " to " + succs);
-							succs.query(dataKey);
-						}
-					});
-					return;
-				}
-			}
-			int diff = 0;
-			if (dataKey > id) {
-				diff = dataKey - id;
-			} else {
-				diff = ring.ringMaxSize() - 1 + dataKey - id;
-			}
-			for (int i = 1; i < fingerTable.size(); i++) {
-				if ((int) Math.pow(ring.ringBase(), i) > diff) {
-					final int temp = i;
-					sim.doAfter(queryProcTimes.next(), new Event() {
+	/**
+	 * Forwards a lookup to the given next hop. If the ring has a timeout and
+	 * the next hop turns out to be dead, it does not answer, and once the
+	 * timeout has elapsed the lookup is retried through another node. If the
+	 * ring has domains, the hop also pays the latency between the domains of
+	 * the two nodes.
+	 * 
+	 * @param lookup
+	 *            the Lookup object
+	 * @param next
+	 *            the next hop Node object
+	 */
+	private void forward(final Lookup lookup, final Node next) {
+		final double sent = sim.time();
+		send(MessageType.QUERY_FORWARD, 2, 0);
+		final DomainTree domains = ring.getDomains();
+		double delay = queryProcTimes.next();
+		if (domains != null)
+			delay += domains.latency(this, next);
+		sim.doAfter(delay, new Event() {
+
+			@Override
+			public void perform() {
+				if (ring.getTimeout() > 0 && !next.isAlive()) {
+					sim.doAfter(ring.getTimeout(), new Event() {
 
 						@Override
 						public void perform() {
-							if (verbose)
-								System.out.println("*** Forwarding Query "
-										+ dataKey + " to " + (temp - 1) + ": "
-										+ fingerTable.getIthEntry(temp - 1));
-							fingerTable.getIthEntry(temp - 1).query(dataKey);
+							retry(lookup, next, sent);
 						}
 					});
 					return;
 				}
-			}
-			sim.doAfter(queryProcTimes.next(), new Event() {
-
-				@Override
-				public void perform() {
-					if (verbose)
-						System.out.println("*** Forwarding Query "
-								+ dataKey
-								+ " to "
-								+ (fingerTable.size() - 1)
-								+ ": "
-								+ fingerTable.getIthEntry(fingerTable.size() - 1));
-					fingerTable.getIthEntry(fingerTable.size() - 1).query(
-							dataKey);
+				if (verbose)
+					System.out.println("*** Forwarding Query "
+							+ lookup.getDataKey() + " to " + next);
+				lookup.hop();
+				if (domains != null) {
+					Node origin = ring.getNodes().get(lookup.getOrigin());
+					lookup.crossed(domains.commonLevel(Node.this, next),
+							origin == null ? 0 : domains.commonLevel(origin,
+									next), domains.levels());
 				}
-			});
+				next.query(lookup);
+			}
+		});
+	}
+
+	/**
+	 * Retries a lookup whose next hop timed out. The dead node is marked
+	 * suspect in the routing table, so this and later lookups route around it,
+	 * and the lookup is forwarded to the alternate hop chosen by the routing
+	 * strategy, e.g. the next best preceding finger or the successor. The
+	 * lookup fails if there is none.
+	 * 
+	 * @param lookup
+	 *            the Lookup object
+	 * @param dead
+	 *            the next hop that did not answer
+	 * @param sent
+	 *            the simulated time the lookup was sent to the dead node
+	 */
+	private void retry(Lookup lookup, Node dead, double sent) {
+		lookup.timedOut(sim.time() - sent);
+		fingerTable.markSuspect(dead);
+		if (verbose) {
+			System.out.printf("%.3f %s", sim.time(), ": ");
+			System.out.println("Node " + this + ": Node " + dead
+					+ " timed out");
+		}
+		Node next = ring.getRouting().alternateHop(this, lookup, dead);
+		if (!isAlive || next == null
+				|| lookup.getRetries() >= fingerTable.size()) {
+			if (verbose)
+				System.out.println("Node " + this + ": Lookup failed!");
+			finish(lookup, false);
 			return;
 		}
+		lookup.retry();
+		forward(lookup, next);
+	}
+
+	/**
+	 * Routing decision for a lookup that carries no routing state of its own,
+	 * i.e. a bare hash key forwarded hop by hop. Returns the node the ring's
+	 * routing strategy forwards a new lookup for the key to. Only Chord
+	 * routing decides from the key alone; the state other strategies keep in
+	 * the Lookup would restart at every hop.
+	 * 
+	 * @param dataKey
+	 *            the hash key of the Data object being queried
+	 * @return the next hop Node object
+	 * @throws IllegalStateException
+	 *             if the ring is not routed the Chord way
+	 */
+	public Node nextHop(int dataKey) {
+		if (!(ring.getRouting() instanceof ChordRouting))
+			throw new IllegalStateException("Stateless routing needs "
+					+ "ChordRouting, not "
+					+ ring.getRouting().getClass().getSimpleName());
+		return ring.getRouting().nextHop(this, new Lookup(dataKey, id,
+				sim.time()));
+	}
+
+	/**
+	 * Finishes a lookup at this node and accumulates its outcome.
+	 * 
+	 * @param lookup
+	 *            the Lookup object
+	 * @param success
+	 *            true if the lookup succeeded, false otherwise
+	 */
+	private void finish(Lookup lookup, boolean success) {
+		LookupFinishEvent.emit(lookup, id, success, sim.time());
+		trace(TraceRecorder.LOOKUP_FINISH, -1, lookup.getDataKey(),
+				lookup.getId(), success ? 1 : 0);
+		lookupSeries.add(success ? 1.0 : 0);
+		ring.getHopSeries().add(lookup.getHops());
+		ring.getTimeoutSeries().add(lookup.getTimeouts());
+		ring.getRetrySeries().add(lookup.getRetries());
+		ring.getExtraLatencySeries().add(lookup.getExtraLatency());
+		ring.getLatencySeries().add(sim.time() - lookup.getStartTime());
+		DomainTree domains = ring.getDomains();
+		if (domains != null) {
+			Node origin = ring.getNodes().get(lookup.getOrigin());
+			ring.getInterDomainHopSeries().add(lookup.getInterDomainHops());
+			ring.getLocalitySeries().add(
+					origin == null ? 0 : domains.commonLevel(origin, this));
+			ring.getReachSeries().add(
+					Math.min(lookup.getReach(), domains.levels()));
+		}
+		StabilizationController controller = ring.getStabilizationController();
+		if (controller != null)
+			controller.lookupFinished(success);
 	}
 
 }
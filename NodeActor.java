@@ -0,0 +1,138 @@
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Class NodeActor runs a Node of the Chord ring as an actor in the live
+ * emulation mode. Messages are put in a lock-free mailbox; whenever the
+ * mailbox has messages and the actor is not already running, the actor is
+ * submitted to the executor, which drains the mailbox on one thread. All the
+ * messages of a node are therefore processed one at a time, and the state of
+ * the node is only written by the thread running its actor.
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+public class NodeActor implements Runnable {
+	/**
+	 * The maximum number of messages processed before yielding the thread.
+	 */
+	private static final int BATCH = 64;
+
+	/**
+	 * The node run by this actor.
+	 */
+	private Node node;
+
+	/**
+	 * The emulator the actor belongs to.
+	 */
+	private ChordEmulator emulator;
+
+	/**
+	 * The executor running the actor.
+	 */
+	private Executor executor;
+
+	/**
+	 * The mailbox of the actor.
+	 */
+	private Queue<ActorMessage> mailbox = new ConcurrentLinkedQueue<ActorMessage>();
+
+	/**
+	 * A flag indicating whether the actor is submitted to the executor.
+	 */
+	private AtomicBoolean scheduled = new AtomicBoolean();
+
+	/**
+	 * Construct a new NodeActor object.
+	 * 
+	 * @param node
+	 *            the node run by the actor
+	 * @param emulator
+	 *            the emulator the actor belongs to
+	 * @param executor
+	 *            the executor running the actor
+	 */
+	public NodeActor(Node node, ChordEmulator emulator, Executor executor) {
+		this.node = node;
+		this.emulator = emulator;
+		this.executor = executor;
+	}
+
+	/**
+	 * Puts a message in the mailbox of the actor.
+	 * 
+	 * @param message
+	 *            the ActorMessage object
+	 */
+	public void tell(ActorMessage message) {
+		mailbox.offer(message);
+		if (scheduled.compareAndSet(false, true))
+			executor.execute(this);
+	}
+
+	/**
+	 * Processes the messages in the mailbox.
+	 */
+	public void run() {
+		for (int i = 0; i < BATCH; i++) {
+			ActorMessage message = mailbox.poll();
+			if (message == null)
+				break;
+			receive(message);
+		}
+		scheduled.set(false);
+		if (!mailbox.isEmpty() && scheduled.compareAndSet(false, true))
+			executor.execute(this);
+	}
+
+	/**
+	 * Processes one message using the routing decisions of the node.
+	 * 
+	 * @param message
+	 *            the ActorMessage object
+	 */
+	private void receive(ActorMessage message) {
+		switch (message.type) {
+		case QUERY_FORWARD:
+			Lookup lookup = message.lookup;
+			int dataKey = lookup.getDataKey();
+			if (!node.isAlive()
+					|| (node.getId() == dataKey && !node.hasData(dataKey))) {
+				emulator.finish(message, false);
+			} else if (node.hasData(dataKey)) {
+				emulator.finish(message, true);
+			} else if (lookup.getHops() >= emulator.maxHops()) {
+				emulator.finish(message, false);
+			} else {
+				lookup.hop();
+				Node next = node.getRing().getRouting().nextHop(node, lookup);
+				emulator.actorOf(next).tell(message);
+			}
+			break;
+		case NOTIFY:
+			// The data handed off to the notifying node is stored by its own
+			// actor.
+			Map<Integer, Data> moved = node.acceptPredecessor(message.sender);
+			if (!moved.isEmpty())
+				emulator.actorOf(message.sender).tell(
+						ActorMessage.dataTransfer(moved));
+			break;
+		case DATA_TRANSFER:
+			node.copyData(message.data);
+			break;
+		case STABILIZE:
+			// Reads the predecessor of the successor, which is owned by
+			// another actor.
+			if (node.updateSuccessor())
+				emulator.actorOf(node.getSuccessor()).tell(
+						ActorMessage.notify(node));
+			break;
+		default:
+			break;
+		}
+	}
+}
@@ -0,0 +1,112 @@
+import java.awt.Color;
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.rit.numeric.AggregateXYSeries;
+import edu.rit.numeric.ListSeries;
+import edu.rit.numeric.plot.Plot;
+
+/**
+ * Class PlotResults plots the results written by a simulation driver, offline
+ * and outside the simulation. The results are read from a CSV file or a file
+ * in the binary format of class BinaryResultSink.
+ * <P>
+ * Usage: java PlotResults <I>file</I> <I>xColumn</I> <I>yColumn</I> ...
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+public class PlotResults {
+
+	private static final Color[] COLORS = { Color.RED, Color.BLUE,
+			Color.GREEN, Color.MAGENTA, Color.ORANGE, Color.BLACK };
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 3) {
+			System.err.println("Usage: java PlotResults <file> <xColumn> "
+					+ "<yColumn> ...");
+			System.exit(1);
+		}
+		List<String> columns = new ArrayList<String>();
+		List<double[]> rows = read(args[0], columns);
+
+		ListSeries xs = column(rows, columns, args[1]);
+		Plot plot = new Plot().rightMargin(36).xAxisTitle(args[1])
+				.xAxisTickFormat(new DecimalFormat("0.0"))
+				.yAxisTitle(args.length == 3 ? args[2] : "")
+				.yAxisTickFormat(new DecimalFormat("0.0")).seriesDots(null);
+		for (int i = 2; i < args.length; i++) {
+			plot.seriesColor(COLORS[(i - 2) % COLORS.length]).xySeries(
+					new AggregateXYSeries(xs, column(rows, columns, args[i])));
+		}
+		plot.getFrame().setVisible(true);
+	}
+
+	/**
+	 * Reads the rows of a results file.
+	 * 
+	 * @param path
+	 *            the path of the file
+	 * @param columns
+	 *            the list the names of the columns are added to
+	 * @return the rows of the file
+	 * @throws IOException
+	 *             if the file cannot be read
+	 */
+	private static List<double[]> read(String path, List<String> columns)
+			throws IOException {
+		if (path.endsWith(".bin")) {
+			InputStream in = new FileInputStream(path);
+			try {
+				return BinaryResultSink.read(in, columns);
+			} finally {
+				in.close();
+			}
+		}
+		List<double[]> rows = new ArrayList<double[]>();
+		BufferedReader in = new BufferedReader(new FileReader(path));
+		try {
+			for (String column : in.readLine().split(","))
+				columns.add(column);
+			String line;
+			while ((line = in.readLine()) != null) {
+				String[] fields = line.split(",");
+				double[] row = new double[fields.length];
+				for (int i = 0; i < fields.length; i++)
+					row[i] = Double.parseDouble(fields[i]);
+				rows.add(row);
+			}
+		} finally {
+			in.close();
+		}
+		return rows;
+	}
+
+	/**
+	 * Returns the values of a column as a series.
+	 * 
+	 * @param rows
+	 *            the rows
+	 * @param columns
+	 *            the names of the columns
+	 * @param column
+	 *            the name of the column
+	 * @return the series of the values of the column
+	 */
+	private static ListSeries column(List<double[]> rows,
+			List<String> columns, String column) {
+		int index = columns.indexOf(column);
+		if (index < 0)
+			throw new IllegalArgumentException("Unknown column " + column);
+		ListSeries series = new ListSeries();
+		for (double[] row : rows)
+			series.add(row[index]);
+		return series;
+	}
+}
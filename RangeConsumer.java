@@ -0,0 +1,25 @@
+/**
+ * Interface RangeConsumer specifies the interface for the consumer of the data
+ * items streamed by a range scan of the Chord ring.
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+public interface RangeConsumer {
+	/**
+	 * Consumes the next data item of the range, in hash key order from the
+	 * start of the range.
+	 * 
+	 * @param data
+	 *            the Data object
+	 */
+	public void accept(Data data);
+
+	/**
+	 * Called when the scan has finished.
+	 * 
+	 * @param scan
+	 *            the RangeScan object
+	 */
+	public void done(RangeScan scan);
+}
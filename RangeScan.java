@@ -0,0 +1,483 @@
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+
+import edu.rit.numeric.ExponentialPrng;
+import edu.rit.sim.Event;
+import edu.rit.sim.Simulation;
+
+/**
+ * Class RangeScan simulates a scan of all the data items with hash keys in an
+ * interval [from, to) of the Chord ring. The scan is routed from an origin
+ * node to the node responsible for the start of the interval, the same way a
+ * lookup is, and then walks the ring along the successor pointers, fetching
+ * from every node its slice of the interval and streaming the items to a
+ * consumer in hash key order.
+ * <P>
+ * The fetch of the next node's slice is pipelined with the consumption of the
+ * current one: as soon as a slice arrives the next node is asked for its own,
+ * as long as fewer than the prefetch window of slices are waiting for the
+ * consumer. A slow consumer thus holds the fetches back instead of letting the
+ * buffered items grow. An interval whose start is greater than its end wraps
+ * around zero, and one whose ends are equal covers the whole ring. A dead
+ * node on the way, as a routing hop or on the walk, is skipped by the node
+ * before it: having timed out on it, that node fixes its routing table and
+ * adopts its first active successor, and the scan goes on from there, so no
+ * active node of the interval is passed over. The items the dead node did
+ * not hand off before failing are missed.
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+public class RangeScan {
+	/**
+	 * The ChordRing object.
+	 */
+	private ChordRing ring;
+
+	/**
+	 * The Simulation object.
+	 */
+	private Simulation sim;
+
+	/**
+	 * The random message delay generator.
+	 */
+	private ExponentialPrng delays;
+
+	/**
+	 * The random item consumption time generator.
+	 */
+	private ExponentialPrng consumeTimes;
+
+	/**
+	 * The consumer of the scanned items.
+	 */
+	private RangeConsumer consumer;
+
+	/**
+	 * The start of the interval, inclusive.
+	 */
+	private int from;
+
+	/**
+	 * The number of hash keys in the interval.
+	 */
+	private int length;
+
+	/**
+	 * The lookup of the start of the interval, carrying the routing state of
+	 * the scan while it is routed.
+	 */
+	private Lookup lookup;
+
+	/**
+	 * The maximum number of slices waiting for the consumer.
+	 */
+	private int window;
+
+	/**
+	 * The slices fetched and not yet consumed, the first one being consumed.
+	 */
+	private Queue<LinkedList<Data>> slices = new LinkedList<LinkedList<Data>>();
+
+	/**
+	 * The distance from the start of the interval of the last key fetched,
+	 * -1 before the first fetch.
+	 */
+	private int covered = -1;
+
+	/**
+	 * The node whose successor is to be fetched once the window allows it,
+	 * or null if none.
+	 */
+	private Node stalled;
+
+	/**
+	 * Whether the scan is routed along the successors rather than the fingers,
+	 * after it reached a node that could not vouch for the start.
+	 */
+	private boolean walking;
+
+	private boolean fetching;
+	private boolean fetched;
+	private boolean consuming;
+	private boolean done;
+
+	// Statistics.
+	private double startTime;
+	private double endTime;
+	private int hops;
+	private int nodes;
+	private int skipped;
+	private int items;
+	private int stalls;
+
+	/**
+	 * Construct a new RangeScan object.
+	 * 
+	 * @param ring
+	 *            the ChordRing object
+	 * @param sim
+	 *            the Simulation object
+	 * @param delays
+	 *            the random message delay generator
+	 * @param consumeTimes
+	 *            the random item consumption time generator
+	 * @param window
+	 *            the maximum number of slices waiting for the consumer
+	 * @param consumer
+	 *            the consumer of the scanned items
+	 */
+	public RangeScan(ChordRing ring, Simulation sim, ExponentialPrng delays,
+			ExponentialPrng consumeTimes, int window, RangeConsumer consumer) {
+		this.ring = ring;
+		this.sim = sim;
+		this.delays = delays;
+		this.consumeTimes = consumeTimes;
+		this.window = window;
+		this.consumer = consumer;
+	}
+
+	/**
+	 * Starts the scan of the interval [from, to) at the given origin node.
+	 * 
+	 * @param origin
+	 *            the node the scan is issued at
+	 * @param from
+	 *            the start of the interval, inclusive
+	 * @param to
+	 *            the end of the interval, exclusive
+	 */
+	public void start(Node origin, int from, int to) {
+		int maxSize = ring.ringMaxSize();
+		this.from = from;
+		this.length = (to - from + maxSize) % maxSize;
+		if (length == 0)
+			length = maxSize;
+		this.startTime = sim.time();
+		this.lookup = new Lookup(from, origin.getId(), startTime);
+		route(origin, null);
+	}
+
+	/**
+	 * Routes the scan one step towards the node responsible for the start of
+	 * the interval, i.e. the successor of the start. The finger taken by a
+	 * hop may be that node itself, which is recognized by its predecessor.
+	 * A node whose predecessor is dead cannot vouch for the start, so if the
+	 * hop to it passed the start, the scan goes back to the previous hop and
+	 * walks the active successors from there instead.
+	 * 
+	 * @param node
+	 *            the node the scan has arrived at
+	 * @param previous
+	 *            the node the scan came from, or null at the origin
+	 */
+	private void route(Node node, Node previous) {
+		if (!node.isAlive() || hops > 4 * ring.getHashKeyLength()) {
+			fetched = true;
+			drain();
+			return;
+		}
+		Node predecessor = node.getPredecessor();
+		if (!walking && previous != null && predecessor != null
+				&& !predecessor.isAlive()
+				&& Node.between(from, previous.getId(), node.getId())) {
+			walking = true;
+			forward(previous, node);
+		} else if (node.getId() == from || (predecessor != null
+				&& predecessor.isAlive()
+				&& Node.between(from, predecessor.getId(), node.getId()))) {
+			fetch(node, node);
+		} else if (Node.between(from, node.getId(), node.getSuccessor()
+				.getId())) {
+			fetch(node, node.getSuccessor());
+		} else {
+			Node hop = nextHop(node);
+			if (!hop.isAlive()) {
+				skipped++;
+				hop = repair(node) == null ? null : nextHop(node);
+			}
+			if (hop == null || !hop.isAlive()) {
+				fetched = true;
+				drain();
+				return;
+			}
+			forward(hop, node);
+		}
+	}
+
+	/**
+	 * Returns the next hop of the scan from the given node: its successor
+	 * when walking the successors, otherwise the next hop chosen by the
+	 * ring's routing strategy.
+	 * 
+	 * @param node
+	 *            the Node object
+	 * @return the next hop Node object
+	 */
+	private Node nextHop(Node node) {
+		if (walking)
+			return node.getSuccessor();
+		return node.getRing().getRouting().nextHop(node, lookup);
+	}
+
+	/**
+	 * Forwards the scan to the given node.
+	 * 
+	 * @param next
+	 *            the next hop Node object
+	 * @param node
+	 *            the node the scan is forwarded from
+	 */
+	private void forward(final Node next, final Node node) {
+		message(MessageType.QUERY_FORWARD, 2, 0);
+		sim.doAfter(delays.next(), new Event() {
+			public void perform() {
+				hops++;
+				route(next, node);
+			}
+		});
+	}
+
+	/**
+	 * Fetches the next slice of the interval from the given node, i.e. the
+	 * items between the last key fetched and the node. If the node is dead,
+	 * the asking node fixes its routing table and the first active node
+	 * following the asking node is fetched from instead. The slice never
+	 * reaches past a node that has not been fetched.
+	 * 
+	 * @param asker
+	 *            the node that pointed the scan to the node
+	 * @param node
+	 *            the Node object
+	 */
+	private void fetch(Node asker, Node node) {
+		if (!node.isAlive()) {
+			skipped++;
+			node = repair(asker);
+			if (node == null) {
+				fetched = true;
+				drain();
+				return;
+			}
+		}
+		final Node target = node;
+		// The slice ends at the node, or at the end of the interval if the
+		// walk wrapped around the interval.
+		int end = distance(target);
+		if (end <= covered)
+			end = length - 1;
+		end = Math.min(end, length - 1);
+		final int maxSize = ring.ringMaxSize();
+		final int lo = (from + covered + 1) % maxSize;
+		final int hi = (from + end + 1) % maxSize;
+		covered = end;
+		fetching = true;
+		message(MessageType.QUERY_FORWARD, 2, 0);
+		sim.doAfter(delays.next(), new Event() {
+			public void perform() {
+				final List<Data> slice = target.scan(lo, hi);
+				message(MessageType.DATA_TRANSFER, 1, slice.size());
+				sim.doAfter(delays.next(), new Event() {
+					public void perform() {
+						received(target, slice);
+					}
+				});
+			}
+		});
+	}
+
+	/**
+	 * Handles the slice of a node arriving at the scanner, and fetches the
+	 * next node unless the scan is complete or the window is full.
+	 * 
+	 * @param node
+	 *            the node the slice comes from
+	 * @param slice
+	 *            the data items of the slice, in hash key order
+	 */
+	private void received(Node node, List<Data> slice) {
+		fetching = false;
+		nodes++;
+		if (!slice.isEmpty())
+			slices.add(new LinkedList<Data>(slice));
+		if (covered >= length - 1) {
+			fetched = true;
+		} else if (slices.size() >= window) {
+			stalled = node;
+			stalls++;
+		} else {
+			fetch(node, node.getSuccessor());
+		}
+		drain();
+	}
+
+	/**
+	 * Consumes the buffered items one at a time, resuming a stalled fetch as
+	 * soon as a slice has been consumed.
+	 */
+	private void drain() {
+		if (consuming)
+			return;
+		if (slices.isEmpty()) {
+			if (fetched && !fetching)
+				finish();
+			return;
+		}
+		consuming = true;
+		sim.doAfter(consumeTimes.next(), new Event() {
+			public void perform() {
+				consuming = false;
+				LinkedList<Data> slice = slices.peek();
+				consumer.accept(slice.removeFirst());
+				items++;
+				if (slice.isEmpty()) {
+					slices.remove();
+					if (stalled != null && slices.size() < window) {
+						Node node = stalled;
+						stalled = null;
+						fetch(node, node.getSuccessor());
+					}
+				}
+				drain();
+			}
+		});
+	}
+
+	/**
+	 * Finishes the scan and tells the consumer.
+	 */
+	private void finish() {
+		if (done)
+			return;
+		done = true;
+		endTime = sim.time();
+		consumer.done(this);
+	}
+
+	/**
+	 * Repairs the routing state of the given node after a message of the scan
+	 * to a dead node timed out: the node fixes its routing table, whose
+	 * entries then point to active nodes, and adopts the first one, its first
+	 * active successor, as its successor.
+	 * 
+	 * @param node
+	 *            the Node object
+	 * @return the new successor, or null if no active node is known
+	 */
+	private Node repair(Node node) {
+		if (!node.isAlive())
+			return null;
+		node.fixFingers();
+		Node successor = node.getFingerTable().getIthEntry(0);
+		if (successor == null || !successor.isAlive())
+			return null;
+		node.setSuccessor(successor);
+		return successor;
+	}
+
+	/**
+	 * Returns the clockwise distance from the start of the interval to the
+	 * given node.
+	 * 
+	 * @param node
+	 *            the Node object
+	 * @return the distance in hash keys
+	 */
+	private int distance(Node node) {
+		int maxSize = ring.ringMaxSize();
+		return (node.getId() - from + maxSize) % maxSize;
+	}
+
+	/**
+	 * Accounts a message of the scan in the ring's traffic monitor, if any.
+	 * 
+	 * @param type
+	 *            the type of the message
+	 * @param keys
+	 *            the number of hash keys carried by the message
+	 * @param items
+	 *            the number of data items carried by the message
+	 */
+	private void message(MessageType type, int keys, int items) {
+		TrafficMonitor traffic = ring.getTrafficMonitor();
+		if (traffic != null)
+			traffic.message(type, sim.time(), keys, items);
+	}
+
+	/**
+	 * Returns the number of items streamed to the consumer.
+	 * 
+	 * @return the number of items
+	 */
+	public int getItems() {
+		return items;
+	}
+
+	/**
+	 * Returns the number of routing hops to the start of the interval.
+	 * 
+	 * @return the number of hops
+	 */
+	public int getHops() {
+		return hops;
+	}
+
+	/**
+	 * Checks whether the scan fetched the whole interval, i.e. it was not cut
+	 * short because no active node could be reached.
+	 * 
+	 * @return true if the scan is complete, false otherwise
+	 */
+	public boolean isComplete() {
+		return covered >= length - 1;
+	}
+
+	/**
+	 * Returns the number of nodes whose slices were fetched.
+	 * 
+	 * @return the number of nodes
+	 */
+	public int getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * Returns the number of dead nodes skipped.
+	 * 
+	 * @return the number of skipped nodes
+	 */
+	public int getSkipped() {
+		return skipped;
+	}
+
+	/**
+	 * Returns the number of times the fetches were held back because the
+	 * window of slices was full.
+	 * 
+	 * @return the number of stalls
+	 */
+	public int getStalls() {
+		return stalls;
+	}
+
+	/**
+	 * Returns the simulated duration of the scan.
+	 * 
+	 * @return the duration
+	 */
+	public double getDuration() {
+		return endTime - startTime;
+	}
+
+	/**
+	 * Returns the scan throughput.
+	 * 
+	 * @return the items per simulated second
+	 */
+	public double getThroughput() {
+		double duration = getDuration();
+		return duration == 0 ? 0 : items / duration;
+	}
+}
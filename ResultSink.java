@@ -0,0 +1,32 @@
+/**
+ * Interface ResultSink specifies an object the simulation drivers write their
+ * results to, one row of values at a time. The names of the columns are
+ * given when the sink is created. A sink may buffer rows; flush() forces the
+ * rows written so far out of the sink, so a driver flushes after every sweep
+ * point and never holds more than the current point in memory.
+ * <P>
+ * Errors of the underlying output are reported as
+ * java.io.UncheckedIOException.
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+public interface ResultSink {
+	/**
+	 * Writes one row of values, one value per column.
+	 * 
+	 * @param values
+	 *            the values of the row
+	 */
+	public void write(double... values);
+
+	/**
+	 * Forces the rows written so far out of the sink.
+	 */
+	public void flush();
+
+	/**
+	 * Flushes and closes the sink.
+	 */
+	public void close();
+}
@@ -0,0 +1,42 @@
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+
+/**
+ * Class ResultSinks provides a factory method for the result sinks of the
+ * simulation drivers.
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+public class ResultSinks {
+	/**
+	 * The number of rows in a block of the binary format.
+	 */
+	public static final int BLOCK_ROWS = 1024;
+
+	private ResultSinks() {
+	}
+
+	/**
+	 * Opens a result sink writing to the given file. Files ending in ".bin"
+	 * are written in the columnar binary format, all others as CSV.
+	 * 
+	 * @param path
+	 *            the path of the file
+	 * @param columns
+	 *            the names of the columns
+	 * @return the ResultSink object
+	 * @throws IOException
+	 *             if the file cannot be created
+	 */
+	public static ResultSink open(String path, String... columns)
+			throws IOException {
+		if (path.endsWith(".bin"))
+			return new BinaryResultSink(new FileOutputStream(path), BLOCK_ROWS,
+					columns);
+		return new CsvResultSink(new BufferedWriter(new FileWriter(path)),
+				columns);
+	}
+}
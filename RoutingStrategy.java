@@ -0,0 +1,57 @@
+/**
+ * Interface RoutingStrategy specifies the interface for the overlay routing of
+ * the nodes of a Chord ring: the routing table every node keeps, how the
+ * table is maintained, and where a lookup is forwarded next. The strategy of
+ * a ring is given when the ChordRing is constructed.
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+public interface RoutingStrategy {
+	/**
+	 * Creates the routing table of a new node.
+	 * 
+	 * @param ring
+	 *            the ChordRing object
+	 * @param node
+	 *            the Node object owning the table
+	 * @return the RoutingTable object
+	 */
+	public RoutingTable createTable(ChordRing ring, Node node);
+
+	/**
+	 * Brings the routing table of the given node up to date, as a part of the
+	 * stabilization procedure.
+	 * 
+	 * @param node
+	 *            the Node object
+	 */
+	public void maintain(Node node);
+
+	/**
+	 * Returns the node the given lookup is forwarded to from the given node,
+	 * passing over the suspect entries of the routing table. Any routing state
+	 * the strategy keeps in the lookup is advanced.
+	 * 
+	 * @param node
+	 *            the node the lookup is at
+	 * @param lookup
+	 *            the Lookup object
+	 * @return the next hop Node object
+	 */
+	public Node nextHop(Node node, Lookup lookup);
+
+	/**
+	 * Returns the node the given lookup is retried through after its next hop
+	 * timed out and was marked suspect.
+	 * 
+	 * @param node
+	 *            the node the lookup is at
+	 * @param lookup
+	 *            the Lookup object
+	 * @param dead
+	 *            the next hop that did not answer
+	 * @return the alternate hop Node object, or null if there is none
+	 */
+	public Node alternateHop(Node node, Lookup lookup, Node dead);
+}
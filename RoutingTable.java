@@ -0,0 +1,86 @@
+/**
+ * Interface RoutingTable specifies the interface for the routing table a node
+ * of the Chord ring keeps under a RoutingStrategy, e.g. its finger table. The
+ * table is a fixed number of entries pointing to other nodes, the first one
+ * being the successor of the node. Entries pointing to a node that timed out
+ * are marked suspect until they are updated.
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+public interface RoutingTable {
+	/**
+	 * Updates all the entries of the table to the active nodes they should
+	 * point to.
+	 * 
+	 * @param nodeKey
+	 *            the hash key of the node owning the table
+	 */
+	public void update(int nodeKey);
+
+	/**
+	 * Updates the ith entry of the table to the active node it should point
+	 * to.
+	 * 
+	 * @param nodeKey
+	 *            the hash key of the node owning the table
+	 * @param i
+	 *            the entry index
+	 * @return true if the entry changed, false otherwise
+	 */
+	public boolean updateEntry(int nodeKey, int i);
+
+	/**
+	 * Returns the active node the ith entry of the table should point to.
+	 * 
+	 * @param nodeKey
+	 *            the hash key of the node owning the table
+	 * @param i
+	 *            the entry index
+	 * @return the Node object
+	 */
+	public Node resolve(int nodeKey, int i);
+
+	/**
+	 * Returns the number of entries of the table.
+	 * 
+	 * @return the number of entries
+	 */
+	public int size();
+
+	/**
+	 * Returns the ith entry of the table.
+	 * 
+	 * @param i
+	 *            the entry index
+	 * @return the Node object
+	 */
+	public Node getIthEntry(int i);
+
+	/**
+	 * Sets the ith entry of the table, clearing its suspect mark.
+	 * 
+	 * @param i
+	 *            the entry index
+	 * @param node
+	 *            the Node object
+	 */
+	public void setIthEntry(int i, Node node);
+
+	/**
+	 * Marks every entry pointing to the given node as suspect.
+	 * 
+	 * @param node
+	 *            the Node object that did not answer
+	 */
+	public void markSuspect(Node node);
+
+	/**
+	 * Checks whether the ith entry of the table is marked suspect.
+	 * 
+	 * @param i
+	 *            the entry index
+	 * @return true if the entry is suspect, false otherwise
+	 */
+	public boolean isSuspect(int i);
+}
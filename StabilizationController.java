@@ -0,0 +1,269 @@
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import edu.rit.numeric.ListSeries;
+import edu.rit.sim.Event;
+import edu.rit.sim.Simulation;
+import edu.rit.util.Random;
+
+/**
+ * Class StabilizationController adapts the interval at which the nodes of a
+ * Chord ring run the stabilization procedure to the churn they experience. It
+ * watches the churn events and the outcome of the lookups over a sliding
+ * window of simulated time and, at regular control periods, adjusts the
+ * interval the way TCP adjusts its congestion window: while the lookup
+ * failure ratio stays under the target the interval grows by a fixed step,
+ * saving maintenance messages, and as soon as it exceeds the target the
+ * interval is cut by a factor.
+ * <P>
+ * The observed churn rate bounds the interval from above: the interval never
+ * grows past the time in which the given number of churn events is expected,
+ * so a sudden burst of churn shortens it even before lookups start failing.
+ * Controlling with a minimum equal to the maximum interval gives the usual
+ * fixed stabilization interval.
+ * <P>
+ * The interval is chosen for the whole ring rather than per node: a single
+ * node sees too few lookups and churn events in a window to estimate the
+ * failure ratio or the churn rate, so the nodes share the interval and only
+ * jitter their own schedules around it.
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+public class StabilizationController {
+	/**
+	 * The Simulation object.
+	 */
+	private Simulation sim;
+
+	/**
+	 * The ChordRing object, whose lookups are watched.
+	 */
+	private ChordRing ring;
+
+	/**
+	 * The Random object, used to jitter the intervals of the nodes.
+	 */
+	private Random rand;
+
+	/**
+	 * The current stabilization interval.
+	 */
+	private double interval;
+
+	/**
+	 * The bounds of the stabilization interval.
+	 */
+	private double minInterval;
+	private double maxInterval;
+
+	/**
+	 * The additive increase of the interval per control period.
+	 */
+	private double increase;
+
+	/**
+	 * The multiplicative decrease of the interval when lookups fail too often.
+	 */
+	private double decrease;
+
+	/**
+	 * The target lookup failure ratio.
+	 */
+	private double target;
+
+	/**
+	 * The number of churn events tolerated per stabilization interval.
+	 */
+	private double churnBudget;
+
+	/**
+	 * The length of the sliding window, in simulated time.
+	 */
+	private double window;
+
+	/**
+	 * The control period, in simulated time.
+	 */
+	private double period;
+
+	/**
+	 * The times of the churn events in the window.
+	 */
+	private Deque<Double> churns = new ArrayDeque<Double>();
+
+	/**
+	 * The finish times of the lookups in the window, negated for the failed
+	 * ones.
+	 */
+	private Deque<Double> lookups = new ArrayDeque<Double>();
+	private int failures;
+
+	// The history of the control periods.
+	private ListSeries times = new ListSeries();
+	private ListSeries intervals = new ListSeries();
+	private ListSeries failureRatios = new ListSeries();
+	private ListSeries churnRates = new ListSeries();
+
+	/**
+	 * Construct a new StabilizationController object and start controlling
+	 * the interval, until the query queue of the ring becomes empty.
+	 * 
+	 * @param sim
+	 *            the Simulation object
+	 * @param ring
+	 *            the ChordRing object
+	 * @param rand
+	 *            the Random object
+	 * @param minInterval
+	 *            the minimum stabilization interval
+	 * @param maxInterval
+	 *            the maximum stabilization interval, also the initial one
+	 * @param target
+	 *            the target lookup failure ratio
+	 * @param window
+	 *            the length of the sliding window
+	 * @param period
+	 *            the control period
+	 */
+	public StabilizationController(Simulation sim, ChordRing ring,
+			Random rand, double minInterval, double maxInterval,
+			double target, double window, double period) {
+		this.sim = sim;
+		this.ring = ring;
+		this.rand = rand;
+		this.minInterval = minInterval;
+		this.maxInterval = maxInterval;
+		this.interval = maxInterval;
+		this.target = target;
+		this.window = window;
+		this.period = period;
+		this.increase = (maxInterval - minInterval) / 20;
+		this.decrease = 0.5;
+		this.churnBudget = 2;
+		ring.setStabilizationController(this);
+		sim.doAfter(period, new Event() {
+
+			@Override
+			public void perform() {
+				adjust();
+			}
+		});
+	}
+
+	/**
+	 * Records a churn event, i.e. a host of the ring leaving or joining.
+	 */
+	public void churned() {
+		churns.add(sim.time());
+	}
+
+	/**
+	 * Records the outcome of a finished lookup.
+	 * 
+	 * @param success
+	 *            true if the lookup found the data, false otherwise
+	 */
+	public void lookupFinished(boolean success) {
+		lookups.add(success ? sim.time() : -sim.time());
+		if (!success)
+			failures++;
+	}
+
+	/**
+	 * Returns the current stabilization interval.
+	 * 
+	 * @return the interval
+	 */
+	public double getInterval() {
+		return interval;
+	}
+
+	/**
+	 * Returns the delay until the next stabilization of a node, the current
+	 * interval jittered uniformly between half and one and a half times, so
+	 * that the nodes do not stabilize in lockstep.
+	 * 
+	 * @return the delay
+	 */
+	public double nextDelay() {
+		return interval * (0.5 + rand.nextDouble());
+	}
+
+	/**
+	 * Adjusts the interval to the churn and lookup failures in the window,
+	 * and schedules the next adjustment.
+	 */
+	private void adjust() {
+		double now = sim.time();
+		while (!churns.isEmpty() && churns.peek() < now - window)
+			churns.remove();
+		while (!lookups.isEmpty() && Math.abs(lookups.peek()) < now - window) {
+			if (lookups.remove() < 0)
+				failures--;
+		}
+
+		double span = Math.min(window, now);
+		double churnRate = churns.size() / span;
+		double failureRatio = lookups.isEmpty() ? 0 : failures
+				/ (double) lookups.size();
+		if (failureRatio > target)
+			interval = Math.max(minInterval, interval * decrease);
+		else
+			interval = Math.min(maxInterval, interval + increase);
+		if (churnRate > 0)
+			interval = Math.max(minInterval, Math.min(interval, churnBudget
+					/ churnRate));
+
+		times.add(now);
+		intervals.add(interval);
+		failureRatios.add(failureRatio);
+		churnRates.add(churnRate);
+
+		if (!ring.isQueueEmpty()) {
+			sim.doAfter(period, new Event() {
+
+				@Override
+				public void perform() {
+					adjust();
+				}
+			});
+		}
+	}
+
+	/**
+	 * Returns the times of the control periods.
+	 * 
+	 * @return the list series of the times
+	 */
+	public ListSeries getTimes() {
+		return times;
+	}
+
+	/**
+	 * Returns the interval chosen at every control period.
+	 * 
+	 * @return the list series of the intervals
+	 */
+	public ListSeries getIntervals() {
+		return intervals;
+	}
+
+	/**
+	 * Returns the lookup failure ratio in the window at every control period.
+	 * 
+	 * @return the list series of the failure ratios
+	 */
+	public ListSeries getFailureRatios() {
+		return failureRatios;
+	}
+
+	/**
+	 * Returns the churn rate in the window at every control period.
+	 * 
+	 * @return the list series of the churn events per unit of time
+	 */
+	public ListSeries getChurnRates() {
+		return churnRates;
+	}
+}
@@ -0,0 +1,29 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Class StabilizeEvent is a JDK Flight Recorder event spanning one run of the
+ * stabilization procedure of a node of the Chord ring. Its duration is the
+ * wall-clock time spent stabilizing, fixing the fingers and checking the
+ * predecessor.
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+@Name("chord.Stabilize")
+@Label("Stabilize")
+@Category({ "Chord", "Maintenance" })
+@Description("A node runs the stabilization procedure")
+public class StabilizeEvent extends Event {
+	@Label("Node Id")
+	int node;
+
+	@Label("Successor Changed")
+	boolean successorChanged;
+
+	@Label("Simulated Time")
+	double simTime;
+}
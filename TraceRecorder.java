@@ -0,0 +1,196 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Class TraceRecorder appends every simulated event of a Chord ring to a
+ * trace file as a fixed-width binary record. The file is memory-mapped in
+ * large chunks, so recording an event is a handful of stores into memory. The
+ * trace can be analysed after the run with TraceReplay.
+ * <P>
+ * Every record is 32 bytes:
+ * 
+ * <PRE>
+ *  0  double simulated time
+ *  8  int    record type
+ * 12  int    node id
+ * 16  int    peer node id, or -1
+ * 20  int    data key, or -1
+ * 24  int    lookup id, or -1
+ * 28  int    auxiliary value (hop index, success flag or number of items)
+ * </PRE>
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+public class TraceRecorder {
+	/**
+	 * The number of bytes of a record.
+	 */
+	public static final int RECORD_SIZE = 32;
+
+	/**
+	 * A lookup is initiated at the node.
+	 */
+	public static final int LOOKUP_START = 1;
+
+	/**
+	 * A lookup arrives at the node; aux is the hop index.
+	 */
+	public static final int HOP = 2;
+
+	/**
+	 * A lookup finishes at the node; aux is 1 on success, 0 on failure.
+	 */
+	public static final int LOOKUP_FINISH = 3;
+
+	/**
+	 * The node joins the ring.
+	 */
+	public static final int JOIN = 4;
+
+	/**
+	 * The node leaves the ring.
+	 */
+	public static final int LEAVE = 5;
+
+	/**
+	 * The node sets its successor to the peer.
+	 */
+	public static final int SUCCESSOR = 6;
+
+	/**
+	 * The node sets its predecessor to the peer (-1 if cleared), after a
+	 * notify or a predecessor check.
+	 */
+	public static final int PREDECESSOR = 7;
+
+	/**
+	 * The node runs the stabilization procedure.
+	 */
+	public static final int STABILIZE = 8;
+
+	/**
+	 * The node hands aux data items off to the peer.
+	 */
+	public static final int HANDOFF = 9;
+
+	/**
+	 * The names of the record types, by type.
+	 */
+	public static final String[] NAMES = { "?", "LOOKUP_START", "HOP",
+			"LOOKUP_FINISH", "JOIN", "LEAVE", "SUCCESSOR", "PREDECESSOR",
+			"STABILIZE", "HANDOFF" };
+
+	/**
+	 * The number of bytes mapped at a time.
+	 */
+	private static final long CHUNK = 64L << 20;
+
+	/**
+	 * The trace file.
+	 */
+	private RandomAccessFile file;
+
+	/**
+	 * The channel of the trace file.
+	 */
+	private FileChannel channel;
+
+	/**
+	 * The currently mapped chunk of the trace file.
+	 */
+	private MappedByteBuffer buffer;
+
+	/**
+	 * The file position of the currently mapped chunk.
+	 */
+	private long chunkStart;
+
+	/**
+	 * The number of records written.
+	 */
+	private long records;
+
+	/**
+	 * Construct a new TraceRecorder object writing to the given file. An
+	 * existing file is overwritten.
+	 * 
+	 * @param path
+	 *            the path of the trace file
+	 * @throws IOException
+	 *             if the file cannot be created or mapped
+	 */
+	public TraceRecorder(String path) throws IOException {
+		this.file = new RandomAccessFile(path, "rw");
+		this.channel = file.getChannel();
+		channel.truncate(0);
+		this.chunkStart = 0;
+		this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, CHUNK);
+	}
+
+	/**
+	 * Appends a record to the trace.
+	 * 
+	 * @param time
+	 *            the simulated time of the event
+	 * @param type
+	 *            the record type
+	 * @param node
+	 *            the id of the node
+	 * @param peer
+	 *            the id of the peer node, or -1
+	 * @param key
+	 *            the data key, or -1
+	 * @param lookup
+	 *            the lookup id, or -1
+	 * @param aux
+	 *            the auxiliary value
+	 */
+	public void record(double time, int type, int node, int peer, int key,
+			int lookup, int aux) {
+		if (!buffer.hasRemaining())
+			nextChunk();
+		buffer.putDouble(time).putInt(type).putInt(node).putInt(peer)
+				.putInt(key).putInt(lookup).putInt(aux);
+		records++;
+	}
+
+	/**
+	 * Returns the number of records written.
+	 * 
+	 * @return the number of records
+	 */
+	public long getRecords() {
+		return records;
+	}
+
+	/**
+	 * Cuts the trace file to the records written and closes it.
+	 * 
+	 * @throws IOException
+	 *             if the file cannot be closed
+	 */
+	public void close() throws IOException {
+		buffer.force();
+		buffer = null;
+		channel.truncate(records * RECORD_SIZE);
+		channel.close();
+		file.close();
+	}
+
+	/**
+	 * Maps the chunk of the trace file following the current one.
+	 */
+	private void nextChunk() {
+		try {
+			chunkStart += CHUNK;
+			buffer = channel.map(FileChannel.MapMode.READ_WRITE, chunkStart,
+					CHUNK);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
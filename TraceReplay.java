@@ -0,0 +1,264 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Class TraceReplay scans a trace file written by TraceRecorder to analyse a
+ * simulation run without running it again. It can summarise the trace, rebuild
+ * the path of a lookup, list the failed lookups, or rebuild the state of the
+ * ring, i.e. which nodes are active and their successors and predecessors, at
+ * any simulated time.
+ * <P>
+ * Usage: java TraceReplay <I>file</I> summary<BR>
+ * java TraceReplay <I>file</I> lookup <I>id</I><BR>
+ * java TraceReplay <I>file</I> failures<BR>
+ * java TraceReplay <I>file</I> ring <I>time</I>
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+public class TraceReplay {
+	/**
+	 * The number of bytes mapped at a time, a multiple of the record size.
+	 */
+	private static final long CHUNK = 64L << 20;
+
+	private RandomAccessFile file;
+	private FileChannel channel;
+	private MappedByteBuffer buffer;
+	private long position;
+	private long size;
+
+	// The fields of the current record.
+	double time;
+	int type;
+	int node;
+	int peer;
+	int key;
+	int lookup;
+	int aux;
+
+	/**
+	 * Construct a new TraceReplay object reading the given trace file.
+	 * 
+	 * @param path
+	 *            the path of the trace file
+	 * @throws IOException
+	 *             if the file cannot be opened
+	 */
+	public TraceReplay(String path) throws IOException {
+		this.file = new RandomAccessFile(path, "r");
+		this.channel = file.getChannel();
+		this.size = channel.size();
+		this.position = 0;
+	}
+
+	/**
+	 * Reads the next record of the trace into the fields of this object.
+	 * 
+	 * @return true if a record was read, false at the end of the trace
+	 * @throws IOException
+	 *             if the file cannot be mapped
+	 */
+	public boolean next() throws IOException {
+		if (buffer == null || !buffer.hasRemaining()) {
+			if (position >= size)
+				return false;
+			long length = Math.min(CHUNK, size - position);
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, position,
+					length);
+			position += length;
+		}
+		time = buffer.getDouble();
+		type = buffer.getInt();
+		node = buffer.getInt();
+		peer = buffer.getInt();
+		key = buffer.getInt();
+		lookup = buffer.getInt();
+		aux = buffer.getInt();
+		return true;
+	}
+
+	/**
+	 * Closes the trace file.
+	 * 
+	 * @throws IOException
+	 *             if the file cannot be closed
+	 */
+	public void close() throws IOException {
+		buffer = null;
+		channel.close();
+		file.close();
+	}
+
+	/**
+	 * Returns the current record as a line of text.
+	 * 
+	 * @return the String object
+	 */
+	public String toString() {
+		String name = type > 0 && type < TraceRecorder.NAMES.length
+				? TraceRecorder.NAMES[type] : "?";
+		return String.format("%.4f\t%-13s\tnode=%d\tpeer=%d\tkey=%d\t"
+				+ "lookup=%d\taux=%d", time, name, node, peer, key, lookup,
+				aux);
+	}
+
+	/**
+	 * Prints the number of records of every type and the lookup success
+	 * ratio.
+	 * 
+	 * @throws IOException
+	 *             if the file cannot be read
+	 */
+	private void summary() throws IOException {
+		long[] counts = new long[TraceRecorder.NAMES.length];
+		long records = 0;
+		long successes = 0;
+		double end = 0;
+		while (next()) {
+			records++;
+			if (type > 0 && type < counts.length)
+				counts[type]++;
+			if (type == TraceRecorder.LOOKUP_FINISH && aux == 1)
+				successes++;
+			end = time;
+		}
+		System.out.println("Records\t\t\t: " + records);
+		System.out.println("Last event time\t\t: " + end);
+		for (int i = 1; i < counts.length; i++)
+			System.out.println(TraceRecorder.NAMES[i] + "\t\t: " + counts[i]);
+		long finished = counts[TraceRecorder.LOOKUP_FINISH];
+		if (finished > 0)
+			System.out.println("Lookup Success Ratio\t: "
+					+ (successes / (double) finished));
+	}
+
+	/**
+	 * Prints the path of the given lookup, from its start at the origin node
+	 * to its finish.
+	 * 
+	 * @param id
+	 *            the lookup id
+	 * @throws IOException
+	 *             if the file cannot be read
+	 */
+	private void lookup(int id) throws IOException {
+		while (next()) {
+			if (lookup != id)
+				continue;
+			System.out.println(this);
+			if (type == TraceRecorder.LOOKUP_FINISH)
+				return;
+		}
+		System.out.println("Lookup " + id + " did not finish");
+	}
+
+	/**
+	 * Prints every failed lookup with its data key, origin node, number of
+	 * hops and the node it failed at.
+	 * 
+	 * @throws IOException
+	 *             if the file cannot be read
+	 */
+	private void failures() throws IOException {
+		// Origin node and hops so far of the lookups in flight, by lookup id.
+		Map<Integer, int[]> inFlight = new TreeMap<Integer, int[]>();
+		System.out.println("lookup\tkey\torigin\thops\tfailedAt\ttime");
+		while (next()) {
+			if (type == TraceRecorder.LOOKUP_START) {
+				inFlight.put(lookup, new int[] { node, 0 });
+			} else if (type == TraceRecorder.HOP) {
+				int[] l = inFlight.get(lookup);
+				if (l != null)
+					l[1] = aux;
+			} else if (type == TraceRecorder.LOOKUP_FINISH) {
+				int[] l = inFlight.remove(lookup);
+				if (aux == 0)
+					System.out.println(lookup + "\t" + key + "\t"
+							+ (l == null ? -1 : l[0]) + "\t"
+							+ (l == null ? 0 : l[1]) + "\t" + node + "\t"
+							+ time);
+			}
+		}
+	}
+
+	/**
+	 * Rebuilds the state of the ring at the given simulated time and prints
+	 * every node with its successor and predecessor, followed by the number of
+	 * active nodes whose successor is inactive or whose successor does not
+	 * point back to them.
+	 * 
+	 * @param t
+	 *            the simulated time
+	 * @throws IOException
+	 *             if the file cannot be read
+	 */
+	private void ring(double t) throws IOException {
+		TreeMap<Integer, int[]> state = new TreeMap<Integer, int[]>();
+		while (next() && time <= t) {
+			int[] s = state.get(node);
+			if (s == null) {
+				s = new int[] { 0, -1, -1 };
+				state.put(node, s);
+			}
+			if (type == TraceRecorder.JOIN)
+				s[0] = 1;
+			else if (type == TraceRecorder.LEAVE)
+				s[0] = 0;
+			else if (type == TraceRecorder.SUCCESSOR)
+				s[1] = peer;
+			else if (type == TraceRecorder.PREDECESSOR)
+				s[2] = peer;
+		}
+
+		int active = 0;
+		int deadSuccessors = 0;
+		int inconsistent = 0;
+		System.out.println("node\tactive\tsuccessor\tpredecessor");
+		for (Map.Entry<Integer, int[]> entry : state.entrySet()) {
+			int[] s = entry.getValue();
+			System.out.println(entry.getKey() + "\t" + s[0] + "\t" + s[1]
+					+ "\t" + s[2]);
+			if (s[0] == 0)
+				continue;
+			active++;
+			int[] successor = state.get(s[1]);
+			if (successor == null || successor[0] == 0)
+				deadSuccessors++;
+			else if (successor[2] != entry.getKey())
+				inconsistent++;
+		}
+		System.out.println();
+		System.out.println("Time\t\t\t: " + t);
+		System.out.println("Active nodes\t\t: " + active);
+		System.out.println("Inactive successors\t: " + deadSuccessors);
+		System.out.println("Inconsistent pointers\t: " + inconsistent);
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: java TraceReplay <file> summary | "
+					+ "lookup <id> | failures | ring <time>");
+			System.exit(1);
+		}
+		TraceReplay replay = new TraceReplay(args[0]);
+		try {
+			if (args[1].equals("summary"))
+				replay.summary();
+			else if (args[1].equals("lookup"))
+				replay.lookup(Integer.parseInt(args[2]));
+			else if (args[1].equals("failures"))
+				replay.failures();
+			else if (args[1].equals("ring"))
+				replay.ring(Double.parseDouble(args[2]));
+			else
+				System.err.println("Unknown mode: " + args[1]);
+		} finally {
+			replay.close();
+		}
+	}
+}
@@ -0,0 +1,242 @@
+import java.util.Arrays;
+
+/**
+ * Class TrafficMonitor accumulates the number of messages and bytes exchanged
+ * between the nodes of a Chord ring, per message type, in windows of
+ * simulated time. Each window is written to a result sink as one row as soon
+ * as the simulation time moves past it, so a time series of the lookup and
+ * maintenance traffic is streamed while the simulation is running.
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+public class TrafficMonitor {
+	/**
+	 * The number of bytes in the header of every message.
+	 */
+	public static final int HEADER_BYTES = 28;
+
+	/**
+	 * The sink the rows are written to.
+	 */
+	private ResultSink out;
+
+	/**
+	 * The length of a time window in simulated time.
+	 */
+	private double window;
+
+	/**
+	 * The number of bytes needed to encode a hash key.
+	 */
+	private int keyBytes;
+
+	/**
+	 * The number of bytes of a data item.
+	 */
+	private int itemBytes;
+
+	/**
+	 * The label values written in front of every row of the current run, or
+	 * null if no run is in progress.
+	 */
+	private double[] label;
+
+	/**
+	 * The index of the current time window.
+	 */
+	private int bucket;
+
+	/**
+	 * The number of messages per message type in the current time window.
+	 */
+	private long[] messages;
+
+	/**
+	 * The number of bytes per message type in the current time window.
+	 */
+	private long[] bytes;
+
+	/**
+	 * The number of messages per message type in the current run.
+	 */
+	private long[] totalMessages;
+
+	/**
+	 * The number of bytes per message type in the current run.
+	 */
+	private long[] totalBytes;
+
+	/**
+	 * Construct a new TrafficMonitor object. The columns of the sink must be
+	 * the ones returned by columns().
+	 * 
+	 * @param out
+	 *            the sink for the rows
+	 * @param window
+	 *            the length of a time window in simulated time
+	 * @param keyBytes
+	 *            the number of bytes needed to encode a hash key
+	 * @param itemBytes
+	 *            the number of bytes of a data item
+	 */
+	public TrafficMonitor(ResultSink out, double window, int keyBytes,
+			int itemBytes) {
+		this.out = out;
+		this.window = window;
+		this.keyBytes = keyBytes;
+		this.itemBytes = itemBytes;
+		int types = MessageType.values().length;
+		this.messages = new long[types];
+		this.bytes = new long[types];
+		this.totalMessages = new long[types];
+		this.totalBytes = new long[types];
+	}
+
+	/**
+	 * Returns the names of the columns of the rows written by a
+	 * TrafficMonitor: the label columns, the start time of the window and the
+	 * number of messages and bytes per message type.
+	 * 
+	 * @param labelColumns
+	 *            the names of the label columns
+	 * @return the names of the columns
+	 */
+	public static String[] columns(String... labelColumns) {
+		MessageType[] types = MessageType.values();
+		String[] columns = Arrays.copyOf(labelColumns, labelColumns.length + 1
+				+ 2 * types.length);
+		int i = labelColumns.length;
+		columns[i++] = "time";
+		for (MessageType type : types) {
+			String name = type.name().toLowerCase();
+			columns[i++] = name + "_msgs";
+			columns[i++] = name + "_bytes";
+		}
+		return columns;
+	}
+
+	/**
+	 * Returns the number of bytes needed to encode a hash key of a Chord ring
+	 * with the given base and hash key length.
+	 * 
+	 * @param base
+	 *            the base of the Chord ring
+	 * @param hashKeyLength
+	 *            the number of digits in the hash key
+	 * @return the number of bytes of a hash key
+	 */
+	public static int keyBytes(int base, int hashKeyLength) {
+		double bits = hashKeyLength * Math.log(base) / Math.log(2);
+		return (int) Math.ceil(bits / 8);
+	}
+
+	/**
+	 * Starts accounting a new run. The rows of the previous run, if any, are
+	 * flushed first.
+	 * 
+	 * @param label
+	 *            the label values written in front of every row of the run
+	 */
+	public void begin(double... label) {
+		end();
+		this.label = label;
+		this.bucket = 0;
+		Arrays.fill(totalMessages, 0);
+		Arrays.fill(totalBytes, 0);
+	}
+
+	/**
+	 * Accounts one message sent at the given simulated time.
+	 * 
+	 * @param type
+	 *            the type of the message
+	 * @param time
+	 *            the simulated time the message is sent at
+	 * @param keys
+	 *            the number of hash keys carried by the message
+	 * @param items
+	 *            the number of data items carried by the message
+	 */
+	public void message(MessageType type, double time, int keys, int items) {
+		if (label == null)
+			return;
+		int b = (int) (time / window);
+		while (bucket < b) {
+			writeBucket();
+			bucket++;
+		}
+		long size = HEADER_BYTES + (long) keys * keyBytes + (long) items
+				* (keyBytes + itemBytes);
+		int t = type.ordinal();
+		messages[t]++;
+		bytes[t] += size;
+		totalMessages[t]++;
+		totalBytes[t] += size;
+	}
+
+	/**
+	 * Ends the current run and writes its last time window.
+	 */
+	public void end() {
+		if (label != null) {
+			writeBucket();
+			out.flush();
+			label = null;
+		}
+	}
+
+	/**
+	 * Returns the number of messages of the given type in the current run.
+	 * 
+	 * @param type
+	 *            the message type
+	 * @return the number of messages
+	 */
+	public long getMessages(MessageType type) {
+		return totalMessages[type.ordinal()];
+	}
+
+	/**
+	 * Returns the number of bytes of the given message type in the current
+	 * run.
+	 * 
+	 * @param type
+	 *            the message type
+	 * @return the number of bytes
+	 */
+	public long getBytes(MessageType type) {
+		return totalBytes[type.ordinal()];
+	}
+
+	/**
+	 * Returns the number of maintenance messages in the current run.
+	 * 
+	 * @return the number of maintenance messages
+	 */
+	public long getMaintenanceMessages() {
+		long sum = 0;
+		for (MessageType type : MessageType.values()) {
+			if (type.isMaintenance())
+				sum += totalMessages[type.ordinal()];
+		}
+		return sum;
+	}
+
+	/**
+	 * Writes the current time window as a row and clears its counters.
+	 */
+	private void writeBucket() {
+		double[] row = Arrays.copyOf(label, label.length + 1 + 2
+				* messages.length);
+		int i = label.length;
+		row[i++] = bucket * window;
+		for (int t = 0; t < messages.length; t++) {
+			row[i++] = messages[t];
+			row[i++] = bytes[t];
+			messages[t] = 0;
+			bytes[t] = 0;
+		}
+		out.write(row);
+	}
+}
@@ -0,0 +1,132 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import chord.bench.RingWorkload;
+import edu.rit.numeric.ExponentialPrng;
+import edu.rit.numeric.ListSeries;
+import edu.rit.sim.Simulation;
+import edu.rit.util.Random;
+
+/**
+ * Class ChordWorkload implements the benchmark workload on the Chord
+ * simulator classes.
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+public class ChordWorkload implements RingWorkload {
+	/**
+	 * The mean query processing/forwarding time.
+	 */
+	private static final double MEAN_PROC_TIME = 1.0;
+
+	/**
+	 * The number of notification samples prepared for the handoff benchmark.
+	 */
+	private static final int HANDOFF_SAMPLES = 1024;
+
+	private int nodes;
+	private int base;
+	private int hashKeyLength;
+	private long seed;
+	private Random rand;
+	private java.util.Random picker;
+	private Simulation sim;
+	private ChordRing ring;
+	private Churner churner;
+	private List<Integer> nodeKeys;
+	private List<Data> dataList;
+	private int nextData;
+	private ExponentialPrng queryProcTimes;
+	private ListSeries series;
+	private List<Map<Integer, Data>> handoffData;
+	private List<Integer> handoffTargets;
+	private List<Node> handoffCandidates;
+
+	public void setUp(int nodes, int base, int hashKeyLength, long seed) {
+		this.nodes = nodes;
+		this.base = base;
+		this.hashKeyLength = hashKeyLength;
+		this.seed = seed;
+	}
+
+	public void reset() {
+		this.rand = Random.getInstance(seed);
+		this.picker = new java.util.Random(seed);
+		this.sim = new Simulation();
+		this.ring = new ChordRing(base, hashKeyLength, nodes, sim, rand,
+				MEAN_PROC_TIME);
+		this.nodeKeys = ring.getNodeKeys();
+		this.dataList = new ArrayList<Data>();
+		for (int i = 0; i < nodes * 1.5; i++)
+			dataList.add(new Data(base, hashKeyLength));
+		ring.addAllData(dataList);
+		this.nextData = 0;
+		// The query queue is empty, so the Churner does not churn by itself.
+		this.churner = new Churner(sim, rand, 1, ring, 1, true);
+		this.queryProcTimes = new ExponentialPrng(rand, 1.0 / MEAN_PROC_TIME);
+		this.series = new ListSeries();
+
+		// Group the data items by node for the handoff benchmark.
+		Map<Node, Map<Integer, Data>> stored = new HashMap<Node, Map<Integer, Data>>();
+		for (Data data : dataList) {
+			Map<Integer, Data> slice = stored.get(data.node);
+			if (slice == null) {
+				slice = new HashMap<Integer, Data>();
+				stored.put(data.node, slice);
+			}
+			slice.put(data.hashCode(), data);
+		}
+		this.handoffData = new ArrayList<Map<Integer, Data>>();
+		this.handoffTargets = new ArrayList<Integer>();
+		this.handoffCandidates = new ArrayList<Node>();
+		List<Node> holders = new ArrayList<Node>(stored.keySet());
+		for (int i = 0; i < HANDOFF_SAMPLES; i++) {
+			Node holder = holders.get(picker.nextInt(holders.size()));
+			Map<Integer, Data> slice = stored.get(holder);
+			int candidateKey = slice.keySet().iterator().next();
+			handoffData.add(slice);
+			handoffTargets.add(holder.getId());
+			handoffCandidates.add(new Node(candidateKey, ring, sim,
+					queryProcTimes, series));
+		}
+	}
+
+	public Object newRing() {
+		return new ChordRing(base, hashKeyLength, nodes, new Simulation(),
+				Random.getInstance(seed), MEAN_PROC_TIME);
+	}
+
+	public Object fingerTableEntry() {
+		int nodeKey = nodeKeys.get(picker.nextInt(nodeKeys.size()));
+		return ring.getFingerTableEntry(nodeKey, picker.nextInt(hashKeyLength));
+	}
+
+	public boolean addData() {
+		Data data = dataList.get(nextData);
+		nextData = (nextData + 1) % dataList.size();
+		return ring.addDataToNode(data);
+	}
+
+	public void query() {
+		int dataKey = dataList.get(picker.nextInt(dataList.size())).hashCode();
+		int nodeKey = nodeKeys.get(picker.nextInt(nodeKeys.size()));
+		ring.getNodes().get(nodeKey).query(dataKey);
+		sim.run();
+	}
+
+	public void notifyHandoff() {
+		int i = picker.nextInt(handoffData.size());
+		Node target = new Node(handoffTargets.get(i), ring, sim,
+				queryProcTimes, series);
+		target.copyData(handoffData.get(i));
+		target.notify(handoffCandidates.get(i));
+	}
+
+	public void stabilizeSweep() {
+		int nodeKey = nodeKeys.get(picker.nextInt(nodeKeys.size()));
+		churner.stabilizeAffected(ring.getNodes().get(nodeKey));
+	}
+}
@@ -0,0 +1,29 @@
+package chord.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Class BenchmarkMain runs the benchmark suite with the GC profiler attached,
+ * so every result is reported together with its allocation rate and garbage
+ * collection counts. All the usual JMH command line options are accepted,
+ * e.g. "-p nodes=1000 RingBenchmark".
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+public class BenchmarkMain {
+
+	public static void main(String[] args) throws RunnerException,
+			CommandLineOptionException {
+		Options options = new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.addProfiler(GCProfiler.class).build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,31 @@
+package chord.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Class ChurnerBenchmark measures the stabilization sweep the Churner runs
+ * over the ring after a node arrived or departed.
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ChurnerBenchmark {
+
+	@Benchmark
+	public void stabilizeSweep(RingState state) {
+		state.workload.stabilizeSweep();
+	}
+}
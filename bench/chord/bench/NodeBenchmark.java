@@ -0,0 +1,36 @@
+package chord.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Class NodeBenchmark measures the operations of class Node: routing a query
+ * through the ring and handing off data on a notification.
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NodeBenchmark {
+
+	@Benchmark
+	public void query(RingState state) {
+		state.workload.query();
+	}
+
+	@Benchmark
+	public void notifyHandoff(RingState state) {
+		state.workload.notifyHandoff();
+	}
+}
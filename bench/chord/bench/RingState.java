@@ -0,0 +1,59 @@
+package chord.bench;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Class RingState holds the Chord ring shared by the benchmarks of a trial.
+ * The ring is parameterized by the number of nodes, the base and the hash key
+ * length; base^hashKeyLength must exceed the number of nodes, and the hash
+ * key length is sized so that it is over a thousand times the largest number
+ * of nodes, keeping the ring as sparse as a real one. The ring is rebuilt
+ * from the seed before every iteration, so the lookups and series the
+ * measured calls accumulate do not carry over into the next iteration.
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+@State(Scope.Benchmark)
+public class RingState {
+	/**
+	 * The name of the class implementing the workload.
+	 */
+	private static final String WORKLOAD = "ChordWorkload";
+
+	@Param({ "1000", "10000" })
+	public int nodes;
+
+	@Param({ "2" })
+	public int base;
+
+	@Param({ "24" })
+	public int hashKeyLength;
+
+	@Param({ "31413" })
+	public long seed;
+
+	/**
+	 * The workload driving the simulator.
+	 */
+	public RingWorkload workload;
+
+	@Setup(Level.Trial)
+	public void setUp() throws ReflectiveOperationException {
+		if (Math.pow(base, hashKeyLength) <= nodes)
+			throw new IllegalArgumentException("base^hashKeyLength must exceed "
+					+ nodes);
+		workload = (RingWorkload) Class.forName(WORKLOAD)
+				.getDeclaredConstructor().newInstance();
+		workload.setUp(nodes, base, hashKeyLength, seed);
+	}
+
+	@Setup(Level.Iteration)
+	public void reset() {
+		workload.reset();
+	}
+}
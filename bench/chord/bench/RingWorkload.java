@@ -0,0 +1,74 @@
+package chord.bench;
+
+/**
+ * Interface RingWorkload specifies the operations of the Chord simulator that
+ * are measured by the benchmark suite. JMH benchmarks cannot live in the
+ * default package, which is where the simulator classes are, so the
+ * benchmarks drive the simulator through this interface. The implementation
+ * (class ChordWorkload in the default package) is loaded by name once per
+ * trial; the measured calls are plain interface calls.
+ * 
+ * @author Chinmay Dani
+ * 
+ */
+public interface RingWorkload {
+	/**
+	 * Sets the parameters of the Chord ring of the workload.
+	 * 
+	 * @param nodes
+	 *            the number of nodes in the ring
+	 * @param base
+	 *            the base of the Chord
+	 * @param hashKeyLength
+	 *            the number of digits in the hash key
+	 * @param seed
+	 *            the seed of the random number generator
+	 */
+	void setUp(int nodes, int base, int hashKeyLength, long seed);
+
+	/**
+	 * Builds the Chord ring of the workload from the seed and places 1.5 data
+	 * items per node on it, dropping the ring built before along with the
+	 * state the measured calls accumulated on it.
+	 */
+	void reset();
+
+	/**
+	 * Constructs a new Chord ring with the parameters of the workload, the
+	 * same ring on every call.
+	 * 
+	 * @return the ChordRing object
+	 */
+	Object newRing();
+
+	/**
+	 * Resolves a random finger table entry of a random node.
+	 * 
+	 * @return the Node object of the entry
+	 */
+	Object fingerTableEntry();
+
+	/**
+	 * Places the next data item of a pool of data items on the ring.
+	 * 
+	 * @return true if the data item was added, false if it was replaced
+	 */
+	boolean addData();
+
+	/**
+	 * Looks up a random stored data item from a random node and runs the
+	 * simulation until the lookup has finished.
+	 */
+	void query();
+
+	/**
+	 * Notifies a node holding a copy of a random node's data of a new
+	 * predecessor, which hands off part of the data.
+	 */
+	void notifyHandoff();
+
+	/**
+	 * Runs the stabilization sweep of the Churner for a random node.
+	 */
+	void stabilizeSweep();
+}